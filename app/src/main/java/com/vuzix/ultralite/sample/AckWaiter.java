@@ -4,6 +4,16 @@ import android.util.Log;
 
 import com.vuzix.ultralite.UltraliteSDK;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * This class demonstrates a mechanism that can be used to synchronize data being received by the
  * glasses.
@@ -15,14 +25,82 @@ import com.vuzix.ultralite.UltraliteSDK;
  *
  * If we delay the phone UI, we can make the glasses UI and the phone UI update at almost the exact
  * same moment for a seamless experience.
+ *
+ * Waiting for every ack costs a full Bluetooth round trip per message, so there is also an
+ * asynchronous form, {@link #requestAck(String)}, that lets up to {@code window} acks be
+ * outstanding at once. The sender keeps the pipe full and only blocks when it gets too far ahead of
+ * the glasses, and an ack that never arrives fails its future with a {@link TimeoutException}.
  */
 class AckWaiter {
+    static final int DEFAULT_WINDOW = 1;
+    static final long DEFAULT_TIMEOUT_MS = 5000;
+    private static final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor();
+
     private boolean replied;
     private final UltraliteSDK ultralite;
     private String message;
+    private final Semaphore window;
+    private final long timeoutMs;
+    private final List<CompletableFuture<Void>> outstanding = new ArrayList<>();
 
     public AckWaiter(UltraliteSDK ultralite) {
+        this(ultralite, DEFAULT_WINDOW, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param window Number of acks that {@link #requestAck(String)} allows to be outstanding
+     * @param timeoutMs How long to wait for each ack before failing its future
+     */
+    public AckWaiter(UltraliteSDK ultralite, int window, long timeoutMs) {
         this.ultralite = ultralite;
+        this.window = new Semaphore(window);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Requests an ack without waiting for it. This only blocks while the window is full, until the
+     * oldest outstanding ack arrives or times out.
+     *
+     * @param message A String to identify this ack in the logs
+     * @return A future completed when the glasses reply, or failed with a TimeoutException
+     */
+    public CompletableFuture<Void> requestAck(String message) throws InterruptedException {
+        window.acquire();
+        CompletableFuture<Void> ack = new CompletableFuture<>();
+        // The future completes exactly once, whichever comes first, so the slot is freed once
+        ack.whenComplete((ignored, error) -> window.release());
+        timeouts.schedule(() -> {
+            if (ack.completeExceptionally(new TimeoutException("No ack for \"" + message + "\" after " + timeoutMs + " ms"))) {
+                Log.w(MainActivity.TAG, "Timed out waiting for \"" + message + "\"");
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        synchronized (outstanding) {
+            outstanding.removeIf(CompletableFuture::isDone);
+            outstanding.add(ack);
+        }
+        ultralite.requestAcknowledgement(LinkMetrics.get().timeReply(LinkMetrics.KIND_ACK, () -> ack.complete(null))::run);
+        return ack;
+    }
+
+    /**
+     * Waits for every ack requested with {@link #requestAck(String)} so far.
+     *
+     * @throws TimeoutException If any of them timed out
+     */
+    public void awaitOutstanding() throws InterruptedException, TimeoutException {
+        List<CompletableFuture<Void>> acks;
+        synchronized (outstanding) {
+            acks = new ArrayList<>(outstanding);
+            outstanding.clear();
+        }
+        for (CompletableFuture<Void> ack : acks) {
+            try {
+                ack.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException) throw (TimeoutException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
     }
 
     /**
@@ -36,13 +114,13 @@ class AckWaiter {
         replied = false;
         this.message = message;
         // Request the ack and provide a callback method
-        ultralite.requestAcknowledgement( () -> {
+        ultralite.requestAcknowledgement(LinkMetrics.get().timeReply(LinkMetrics.KIND_ACK, () -> {
             synchronized(this) {
                 // Simply set the bool and notify
                 replied = true;
                 this.notify();
             }
-        });
+        })::run);
         // Then wait
         synchronized(this) {
             while (!replied) {
@@ -50,6 +128,7 @@ class AckWaiter {
                     this.wait();
                 } catch (InterruptedException e) {
                     Log.i(MainActivity.TAG, "Wait for \"" + message + "\" interrupted ", e);
+                    Thread.currentThread().interrupt(); // Restore interruption status
                     break;
                 }
             }
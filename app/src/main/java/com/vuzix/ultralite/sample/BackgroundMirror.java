@@ -0,0 +1,165 @@
+package com.vuzix.ultralite.sample;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.UltraliteColor;
+import com.vuzix.ultralite.UltraliteSDK.Canvas;
+
+import java.util.Arrays;
+
+/**
+ * A phone-side copy of the canvas background, so a new frame only sends the parts that changed.
+ *
+ * Frames are compared tile by tile at the 4 grey levels the glasses can show. A run of changed tiles
+ * in a tile row goes out as one small {@code drawBackground} image; a changed tile that is all black
+ * or all white is sent as a {@code clearBackgroundRect} instead, which costs almost nothing. When
+ * most of the screen changed, the whole frame is sent in one image.
+ *
+ * The mirror is only right if nothing else draws on the background. After anything else does, call
+ * {@link #invalidate()} so the next frame is sent in full, or {@link #restore()} to put the last frame
+ * back. Only used on the render thread; the caller commits.
+ */
+class BackgroundMirror {
+    static final int WIDTH = Canvas.WIDTH;
+    static final int HEIGHT = 480;
+    static final int TILE = 32;
+    private static final int COLS = WIDTH / TILE;
+    private static final int ROWS = HEIGHT / TILE;
+    private static final int FULL_FRAME_PERCENT = 75;   // Above this, one image beats many
+    private static final byte BLACK = 0;
+    private static final byte WHITE = 3;
+    private static final byte MIXED = -1;
+
+    private final Canvas canvas;
+    private final byte[] shown = new byte[WIDTH * HEIGHT];   // Grey level of each pixel
+    private final byte[] next = new byte[WIDTH * HEIGHT];
+    private final int[] pixels = new int[WIDTH * HEIGHT];
+    private final boolean[] dirty = new boolean[COLS * ROWS];
+    private final byte[] tileLevel = new byte[COLS * ROWS];
+    private boolean valid;
+    private Bitmap lastFrame;   // Owned by the caller, who must not recycle it while it is shown
+
+    /** Starts with the background known to be black, as after {@code clearBackground()}. */
+    BackgroundMirror(@NonNull Canvas canvas) {
+        this.canvas = canvas;
+        valid = true;
+    }
+
+    /** Forgets what is on the glasses, so the next frame is sent in full. */
+    void invalidate() {
+        valid = false;
+    }
+
+    /** Clears the background and the mirror with it. */
+    void clear() {
+        canvas.clearBackground(UltraliteColor.BLACK);
+        Arrays.fill(shown, BLACK);
+        valid = true;
+        lastFrame = null;
+    }
+
+    /** Clears the background and draws the last frame again, for when the glasses lost it. */
+    void restore() {
+        Bitmap frame = lastFrame;
+        clear();
+        if (frame != null) update(frame);
+    }
+
+    /**
+     * Sends whatever differs between {@code frame} and what the glasses show.
+     *
+     * @param frame A {@link Canvas#WIDTH} by {@link Canvas#HEIGHT} bitmap
+     * @return The number of tiles that changed
+     */
+    int update(@NonNull Bitmap frame) {
+        if (frame.getWidth() != WIDTH || frame.getHeight() != HEIGHT) {
+            throw new IllegalArgumentException("Frame must be " + WIDTH + "x" + HEIGHT);
+        }
+        frame.getPixels(pixels, 0, WIDTH, 0, 0, WIDTH, HEIGHT);
+        for (int i = 0; i < pixels.length; i++) next[i] = greyLevel(pixels[i]);
+
+        int dirtyCount = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLS; col++) {
+                int tile = row * COLS + col;
+                dirty[tile] = !valid || tileChanged(col, row);
+                if (dirty[tile]) {
+                    tileLevel[tile] = uniformLevel(col, row);
+                    dirtyCount++;
+                }
+            }
+        }
+        lastFrame = frame;
+        if (dirtyCount == 0) return 0;
+
+        if (dirtyCount * 100 >= COLS * ROWS * FULL_FRAME_PERCENT) {
+            drawImage(frame, 0, 0, WIDTH, HEIGHT);
+        } else {
+            for (int row = 0; row < ROWS; row++) sendRow(frame, row);
+        }
+        System.arraycopy(next, 0, shown, 0, shown.length);
+        valid = true;
+        return dirtyCount;
+    }
+
+    // Sends the dirty tiles of one tile row, joining neighbours that need an image
+    private void sendRow(Bitmap frame, int row) {
+        int y = row * TILE;
+        int col = 0;
+        while (col < COLS) {
+            int tile = row * COLS + col;
+            if (!dirty[tile]) {
+                col++;
+            } else if (tileLevel[tile] != MIXED) {
+                canvas.clearBackgroundRect(col * TILE, y, TILE, TILE,
+                        tileLevel[tile] == WHITE ? UltraliteColor.WHITE : UltraliteColor.BLACK);
+                LinkMetrics.get().recordSend(LinkMetrics.KIND_IMAGE, 0);
+                col++;
+            } else {
+                int end = col + 1;
+                while (end < COLS && dirty[row * COLS + end] && tileLevel[row * COLS + end] == MIXED) end++;
+                drawImage(frame, col * TILE, y, (end - col) * TILE, TILE);
+                col = end;
+            }
+        }
+    }
+
+    private void drawImage(Bitmap frame, int x, int y, int width, int height) {
+        Bitmap region = width == frame.getWidth() && height == frame.getHeight()
+                ? frame : Bitmap.createBitmap(frame, x, y, width, height);
+        canvas.drawBackground(LVGLImage.fromBitmap(region, LVGLImage.CF_INDEXED_2_BIT), x, y);
+        LinkMetrics.get().recordSend(LinkMetrics.KIND_IMAGE, LinkMetrics.imageBytes(width, height, LVGLImage.CF_INDEXED_2_BIT));
+        if (region != frame) region.recycle();
+    }
+
+    private boolean tileChanged(int col, int row) {
+        for (int y = row * TILE, yEnd = y + TILE; y < yEnd; y++) {
+            for (int i = y * WIDTH + col * TILE, iEnd = i + TILE; i < iEnd; i++) {
+                if (shown[i] != next[i]) return true;
+            }
+        }
+        return false;
+    }
+
+    // BLACK or WHITE if every pixel of the tile has that level, otherwise MIXED
+    private byte uniformLevel(int col, int row) {
+        byte level = next[row * TILE * WIDTH + col * TILE];
+        if (level != BLACK && level != WHITE) return MIXED;
+        for (int y = row * TILE, yEnd = y + TILE; y < yEnd; y++) {
+            for (int i = y * WIDTH + col * TILE, iEnd = i + TILE; i < iEnd; i++) {
+                if (next[i] != level) return MIXED;
+            }
+        }
+        return level;
+    }
+
+    private static byte greyLevel(int argb) {
+        int luma = (Color.red(argb) * 77 + Color.green(argb) * 150 + Color.blue(argb) * 29) >> 8;
+        luma = luma * Color.alpha(argb) / 255;   // Transparent shows as black
+        return (byte) (luma >> 6);
+    }
+}
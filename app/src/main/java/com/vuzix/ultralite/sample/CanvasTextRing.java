@@ -0,0 +1,114 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.Anchor;
+import com.vuzix.ultralite.TextAlignment;
+import com.vuzix.ultralite.TextWrapMode;
+import com.vuzix.ultralite.UltraliteColor;
+import com.vuzix.ultralite.UltraliteSDK.Canvas;
+
+/**
+ * The rows of document text shown on a CANVAS layout, kept as a ring of text IDs.
+ *
+ * Scrolling by fewer lines than the number of rows does not rewrite every row. The IDs of the lines
+ * that scroll off are reused for the lines that scroll on, the others are only moved with
+ * {@code moveText}, so a one-line scroll sends a single new string. Rows whose text has not changed
+ * are never sent again, which {@link CanvasTransaction} takes care of.
+ *
+ * This class only records canvas changes; the caller decides when to commit.
+ */
+class CanvasTextRing {
+    private final CanvasTransaction canvas;
+    private final int rows;
+    private final int lineHeight;
+    private final int[] ids;        // In ring order, ids[(head + row) % rows] is shown on that row
+    private final int[] idRow;      // Row each id is currently positioned at
+    private final String[] texts;   // Text last given to each id, what the rows show
+    private int head;
+    private int firstLine;
+
+    CanvasTextRing(@NonNull CanvasTransaction canvas, int rows, int lineHeight) {
+        this.canvas = canvas;
+        this.rows = rows;
+        this.lineHeight = lineHeight;
+        ids = new int[rows];
+        idRow = new int[rows];
+        texts = new String[rows];
+    }
+
+    /**
+     * Creates the text objects showing the start of the window. Whether the glasses had enough
+     * text objects for them is only known on commit.
+     */
+    void create(@NonNull LineWindow window) {
+        head = 0;
+        firstLine = 0;
+        window.moveTo(0);
+        for (int row = 0; row < rows; row++) {
+            texts[row] = window.get(row);
+            ids[row] = canvas.createText(texts[row], TextAlignment.LEFT, UltraliteColor.WHITE, Anchor.TOP_LEFT,
+                    0, row * lineHeight, Canvas.WIDTH, lineHeight, TextWrapMode.CLIP, true);
+            idRow[row] = row;
+        }
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getFirstLine() {
+        return firstLine;
+    }
+
+    /** Shows the window starting at {@code newFirstLine}, sending only what changed. */
+    void scrollTo(int newFirstLine, @NonNull LineWindow window) {
+        int delta = newFirstLine - firstLine;
+        if (delta == 0) return;
+        firstLine = newFirstLine;
+        window.moveTo(newFirstLine);
+        if (Math.abs(delta) < rows) {
+            // The IDs that scrolled off one edge come back on the other edge
+            head = Math.floorMod(head + delta, rows);
+        }
+        for (int row = 0; row < rows; row++) {
+            int slot = (head + row) % rows;
+            if (idRow[slot] != row) {
+                canvas.moveText(ids[slot], Anchor.TOP_LEFT, 0, row * lineHeight);
+                idRow[slot] = row;
+            }
+            update(slot, window.get(newFirstLine + row));
+        }
+    }
+
+    /** Updates a document line if it is currently shown. */
+    void updateLine(int line, @NonNull String text) {
+        int row = line - firstLine;
+        if (row >= 0 && row < rows) update((head + row) % rows, text);
+    }
+
+    /**
+     * Compares the rows shown with the lines of {@code window} at the same position, which may be
+     * over a different version of the document, and updates the rows that differ.
+     *
+     * @return The number of rows updated
+     */
+    int refresh(@NonNull LineWindow window) {
+        window.moveTo(firstLine);
+        int updated = 0;
+        for (int row = 0; row < rows; row++) {
+            int slot = (head + row) % rows;
+            String text = window.get(firstLine + row);
+            if (!text.equals(texts[slot])) {
+                update(slot, text);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private void update(int slot, String text) {
+        texts[slot] = text;
+        canvas.updateText(ids[slot], text);
+    }
+}
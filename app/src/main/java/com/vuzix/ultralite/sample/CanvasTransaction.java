@@ -0,0 +1,374 @@
+package com.vuzix.ultralite.sample;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.Anchor;
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.TextAlignment;
+import com.vuzix.ultralite.TextWrapMode;
+import com.vuzix.ultralite.UltraliteColor;
+import com.vuzix.ultralite.UltraliteSDK.Canvas;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Records changes to canvas text, images and animations, and sends only what is left of them when
+ * the caller commits.
+ *
+ * The methods mirror {@link Canvas}, but the IDs they hand out belong to this class and are mapped
+ * to the glasses' IDs on commit. Between two commits:
+ * <ul>
+ *     <li>Later updates, moves and visibility changes of an object replace earlier ones.</li>
+ *     <li>An object created and removed again is never sent at all.</li>
+ *     <li>Changes to an object that is still to be created are folded into its creation.</li>
+ *     <li>Text that is already showing is not sent again.</li>
+ *     <li>A move of an object that ends up hidden is held back until it is shown again.</li>
+ * </ul>
+ * Removals are sent before creations, so the freed objects are available to them. Everything sent is
+ * recorded in {@link LinkMetrics} here, so callers do not need to.
+ *
+ * Because every live object is kept with its current content, anchor, position and visibility, this
+ * is also the app's record of what the glasses should show. While another app has control the
+ * transaction is {@link #suspend() suspended} and keeps recording without sending; {@link #replay()}
+ * then recreates the whole scene in one batch.
+ *
+ * Background drawing is not recorded; it goes straight to the canvas and is committed along with
+ * everything else. Only used on the render thread.
+ */
+class CanvasTransaction {
+    private static final String TAG = "CanvasTransaction";
+    private static final int TEXT = 0;
+    private static final int IMAGE = 1;
+    private static final int ANIMATION = 2;
+
+    private static class CanvasObject {
+        final int type;
+        int glassesId = -1;       // -1 until it exists on the glasses
+        boolean createPending;
+        boolean removePending;
+
+        // Creation parameters that cannot be changed later
+        TextAlignment alignment;
+        UltraliteColor color;
+        TextWrapMode wrap;
+        int width, height;
+        LVGLImage[] frames;
+        int frameDuration;
+
+        String text;
+        LVGLImage image;
+        boolean contentPending;
+        Anchor anchor;
+        int x, y;
+        boolean moved;            // Images and animations sit at their anchor until moved
+        boolean movePending;
+        boolean visible;
+        boolean visibilityPending;
+
+        String shownText;         // What the glasses show, null for images
+        boolean shownVisible;
+
+        CanvasObject(int type) {
+            this.type = type;
+        }
+    }
+
+    private final Canvas canvas;
+    private final Map<Integer, CanvasObject> objects = new LinkedHashMap<>();   // In order of creation
+    private final LinkedHashSet<Integer> changed = new LinkedHashSet<>();   // In order of first change
+    private int nextId = 1;
+    private boolean suspended;
+
+    CanvasTransaction(@NonNull Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /** For the background and anything else this class does not record. */
+    @NonNull
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    /** Forgets every object, for when the layout was reset and the canvas is empty. */
+    void reset() {
+        objects.clear();
+        changed.clear();
+        suspended = false;
+    }
+
+    /** Keeps recording changes but stops sending them, for while another app controls the glasses. */
+    void suspend() {
+        suspended = true;
+    }
+
+    boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Recreates every object as it should look now, for when the glasses no longer show them, such
+     * as after getting control back. The objects are sent in creation order on the next commit; the
+     * caller sets the layout first.
+     */
+    void replay() {
+        suspended = false;
+        changed.clear();
+        for (Iterator<Map.Entry<Integer, CanvasObject>> it = objects.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, CanvasObject> entry = it.next();
+            CanvasObject o = entry.getValue();
+            if (o.removePending) {
+                it.remove();
+                continue;
+            }
+            o.glassesId = -1;
+            o.createPending = true;
+            o.contentPending = false;
+            o.movePending = false;
+            o.visibilityPending = false;
+            o.shownText = null;
+            changed.add(entry.getKey());
+        }
+    }
+
+    int createText(@NonNull String text, @NonNull TextAlignment alignment, @NonNull UltraliteColor color,
+                   @NonNull Anchor anchor, int x, int y, int width, int height, @NonNull TextWrapMode wrap,
+                   boolean visible) {
+        CanvasObject o = new CanvasObject(TEXT);
+        o.alignment = alignment;
+        o.color = color;
+        o.wrap = wrap;
+        o.width = width;
+        o.height = height;
+        o.text = text;
+        return add(o, anchor, x, y, visible);
+    }
+
+    int createImage(@NonNull LVGLImage image, @NonNull Anchor anchor) {
+        CanvasObject o = new CanvasObject(IMAGE);
+        o.image = image;
+        return add(o, anchor, 0, 0, true);
+    }
+
+    int createAnimation(@NonNull LVGLImage[] frames, @NonNull Anchor anchor, int frameDuration) {
+        CanvasObject o = new CanvasObject(ANIMATION);
+        o.frames = frames;
+        o.frameDuration = frameDuration;
+        return add(o, anchor, 0, 0, true);
+    }
+
+    private int add(CanvasObject o, Anchor anchor, int x, int y, boolean visible) {
+        o.createPending = true;
+        o.anchor = anchor;
+        o.x = x;
+        o.y = y;
+        o.visible = visible;
+        int id = nextId++;
+        objects.put(id, o);
+        changed.add(id);
+        return id;
+    }
+
+    void updateText(int id, @NonNull String text) {
+        CanvasObject o = live(id, TEXT);
+        if (o == null) return;
+        o.text = text;
+        o.contentPending = !o.createPending;
+    }
+
+    void updateImage(int id, @NonNull LVGLImage image) {
+        CanvasObject o = live(id, IMAGE);
+        if (o == null) return;
+        o.image = image;
+        o.contentPending = !o.createPending;
+    }
+
+    void moveText(int id, @NonNull Anchor anchor, int x, int y) {
+        move(live(id, TEXT), anchor, x, y);
+    }
+
+    void moveImage(int id, int x, int y) {
+        CanvasObject o = live(id, IMAGE);
+        if (o != null) move(o, o.anchor, x, y);
+    }
+
+    void moveAnimation(int id, int x, int y) {
+        CanvasObject o = live(id, ANIMATION);
+        if (o != null) move(o, o.anchor, x, y);
+    }
+
+    private void move(CanvasObject o, Anchor anchor, int x, int y) {
+        if (o == null) return;
+        o.anchor = anchor;
+        o.x = x;
+        o.y = y;
+        o.moved = true;
+        o.movePending = !o.createPending;
+    }
+
+    void setTextVisible(int id, boolean visible) {
+        setVisible(live(id, TEXT), visible);
+    }
+
+    void setImageVisible(int id, boolean visible) {
+        setVisible(live(id, IMAGE), visible);
+    }
+
+    void setAnimationVisible(int id, boolean visible) {
+        setVisible(live(id, ANIMATION), visible);
+    }
+
+    private void setVisible(CanvasObject o, boolean visible) {
+        if (o == null) return;
+        o.visible = visible;
+        o.visibilityPending = !o.createPending && visible != o.shownVisible;
+    }
+
+    void removeText(int id) {
+        remove(id, TEXT);
+    }
+
+    void removeImage(int id) {
+        remove(id, IMAGE);
+    }
+
+    void removeAnimation(int id) {
+        remove(id, ANIMATION);
+    }
+
+    private void remove(int id, int type) {
+        CanvasObject o = live(id, type);
+        if (o == null) return;
+        if (o.createPending) {
+            objects.remove(id);   // Never reached the glasses
+            changed.remove(id);
+        } else {
+            o.removePending = true;
+        }
+    }
+
+    // The object to change, marked as changed, or null if the ID is unknown or removed
+    private CanvasObject live(int id, int type) {
+        CanvasObject o = objects.get(id);
+        if (o == null || o.removePending || o.type != type) {
+            Log.w(TAG, "Ignoring change to unknown object " + id);
+            return null;
+        }
+        changed.add(id);
+        return o;
+    }
+
+    /** Sends what is left of the changes and commits, without waiting for the glasses. */
+    boolean commit() {
+        return commit(null);
+    }
+
+    /**
+     * Sends what is left of the changes and commits.
+     *
+     * @param onCommitted Runs when the glasses confirm the commit, on an SDK thread; may be null. If
+     *                    the transaction is suspended nothing is sent and it runs right away.
+     * @return False if the glasses could not create some of the objects, which are then forgotten
+     */
+    boolean commit(Runnable onCommitted) {
+        if (suspended) {
+            if (onCommitted != null) onCommitted.run();
+            return true;
+        }
+        boolean created = flush();
+        canvas.commit(LinkMetrics.get().timeReply(LinkMetrics.KIND_COMMIT, onCommitted)::run);
+        return created;
+    }
+
+    private boolean flush() {
+        LinkMetrics metrics = LinkMetrics.get();
+        // Removals first, so the creations below can use the freed objects
+        for (Integer id : changed) {
+            CanvasObject o = objects.get(id);
+            if (o == null || !o.removePending) continue;
+            if (o.type == TEXT) canvas.removeText(o.glassesId);
+            else if (o.type == IMAGE) canvas.removeImage(o.glassesId);
+            else canvas.removeAnimation(o.glassesId);
+            metrics.recordSend(LinkMetrics.KIND_REMOVE, 0);
+            objects.remove(id);
+        }
+
+        boolean created = true;
+        for (Integer id : changed) {
+            CanvasObject o = objects.get(id);
+            if (o == null) continue;
+            if (o.createPending) {
+                if (!create(o)) {
+                    Log.e(TAG, "The glasses could not create object " + id);
+                    objects.remove(id);
+                    created = false;
+                }
+            } else {
+                sendChanges(o);
+            }
+        }
+        changed.clear();
+        return created;
+    }
+
+    private boolean create(CanvasObject o) {
+        LinkMetrics metrics = LinkMetrics.get();
+        if (o.type == TEXT) {
+            o.glassesId = canvas.createText(o.text, o.alignment, o.color, o.anchor, o.x, o.y, o.width, o.height,
+                    o.wrap, o.visible);
+            metrics.recordText(LinkMetrics.KIND_TEXT, o.text);
+            o.shownText = o.text;
+        } else if (o.type == IMAGE) {
+            o.glassesId = canvas.createImage(o.image, o.anchor);
+            metrics.recordSend(LinkMetrics.KIND_IMAGE, MainActivity.imageCache.estimatedBytes(o.image));
+            if (o.glassesId != -1 && o.moved) canvas.moveImage(o.glassesId, o.x, o.y);
+            if (o.glassesId != -1 && !o.visible) canvas.setImageVisible(o.glassesId, false);
+        } else {
+            o.glassesId = canvas.createAnimation(o.frames, o.anchor, o.frameDuration);
+            int bytes = 0;
+            for (LVGLImage frame : o.frames) bytes += MainActivity.imageCache.estimatedBytes(frame);
+            metrics.recordSend(LinkMetrics.KIND_IMAGE, bytes);
+            if (o.glassesId != -1 && o.moved) canvas.moveAnimation(o.glassesId, o.x, o.y);
+            if (o.glassesId != -1 && !o.visible) canvas.setAnimationVisible(o.glassesId, false);
+        }
+        o.createPending = false;
+        o.shownVisible = o.visible;
+        return o.glassesId != -1;
+    }
+
+    private void sendChanges(CanvasObject o) {
+        LinkMetrics metrics = LinkMetrics.get();
+        if (o.contentPending) {
+            if (o.type == TEXT && !Objects.equals(o.text, o.shownText)) {
+                canvas.updateText(o.glassesId, o.text);
+                metrics.recordText(LinkMetrics.KIND_TEXT, o.text);
+                o.shownText = o.text;
+            } else if (o.type == IMAGE) {
+                canvas.updateImage(o.glassesId, o.image);
+                metrics.recordSend(LinkMetrics.KIND_IMAGE, MainActivity.imageCache.estimatedBytes(o.image));
+            }
+            o.contentPending = false;
+        }
+        // A hidden object keeps its pending move until it is shown again
+        if (o.movePending && o.visible) {
+            if (o.type == TEXT) canvas.moveText(o.glassesId, o.anchor, o.x, o.y);
+            else if (o.type == IMAGE) canvas.moveImage(o.glassesId, o.x, o.y);
+            else canvas.moveAnimation(o.glassesId, o.x, o.y);
+            metrics.recordSend(LinkMetrics.KIND_MOVE, 0);
+            o.movePending = false;
+        }
+        if (o.visibilityPending) {
+            if (o.type == TEXT) canvas.setTextVisible(o.glassesId, o.visible);
+            else if (o.type == IMAGE) canvas.setImageVisible(o.glassesId, o.visible);
+            else canvas.setAnimationVisible(o.glassesId, o.visible);
+            metrics.recordSend(LinkMetrics.KIND_VISIBILITY, 0);
+            o.shownVisible = o.visible;
+            o.visibilityPending = false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.utils.scroll.LiveText;
+
+/**
+ * Feeds a {@link LiveText} from a stream of caption changes instead of the whole transcript.
+ *
+ * {@link LiveText#sendText(String)} wants all the text it should show, every time. A speech engine
+ * gives us final text plus a partial result that keeps changing, so this keeps the final text and
+ * the partial tail apart: {@link #append} adds final text, {@link #replaceTail} swaps the partial
+ * result. Only a rolling window of the most recent text is kept. Once the final text grows to twice
+ * the window it is cut back to the window at a word boundary, so each update costs the same however
+ * long the session runs.
+ *
+ * The cut changes where LiveText wraps the oldest lines, but those have long scrolled off the
+ * glasses when the window is larger than what is showing. All methods are thread safe.
+ */
+class CaptionStream {
+    static final int DEFAULT_WINDOW_CHARS = 512;
+
+    private LiveText liveText;
+    private final int windowChars;
+    private final StringBuilder text;   // Final text, then the partial tail
+    private int tailStart;              // Where the partial tail starts in text
+
+    CaptionStream(@NonNull LiveText liveText, int windowChars) {
+        this.liveText = liveText;
+        this.windowChars = windowChars;
+        text = new StringBuilder(windowChars * 2 + 256);
+    }
+
+    /** Adds final text after the last final text, replacing the partial tail. */
+    synchronized void append(@NonNull CharSequence finalText) {
+        text.setLength(tailStart);
+        text.append(finalText);
+        tailStart = text.length();
+        trim();
+        send();
+    }
+
+    /** Replaces the partial result that follows the final text. */
+    synchronized void replaceTail(@NonNull CharSequence partial) {
+        text.setLength(tailStart);
+        text.append(partial);
+        send();
+    }
+
+    /** Makes the partial result final, so the next partial result goes after it. */
+    synchronized void commitTail() {
+        tailStart = text.length();
+        trim();
+    }
+
+    /** Shows the text on another LiveText from now on, such as after the glasses lost the first one. */
+    synchronized void attach(@NonNull LiveText liveText) {
+        this.liveText = liveText;
+        send();
+    }
+
+    synchronized void clear() {
+        text.setLength(0);
+        tailStart = 0;
+        send();
+    }
+
+    // Drops the oldest final text once it is twice the window, so this happens once per window.
+    // The cut moves forward to a word boundary in the first half of the window; text without one
+    // there, such as CJK or a long URL, is cut mid-word rather than dropped whole.
+    private void trim() {
+        if (tailStart <= windowChars * 2) return;
+        int start = tailStart - windowChars;
+        int cut = start;
+        int limit = start + windowChars / 2;
+        while (cut <= limit && !Character.isWhitespace(text.charAt(cut - 1))) cut++;
+        if (cut > limit) cut = start;
+        text.delete(0, cut);
+        tailStart -= cut;
+    }
+
+    private void send() {
+        liveText.sendText(text.toString());
+    }
+}
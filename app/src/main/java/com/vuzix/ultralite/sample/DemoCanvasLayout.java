@@ -27,8 +27,6 @@ public class DemoCanvasLayout {
     /**
      * Switches to a plain canvas and renders the given text at the top-left corner.
      */
-
-    private static int currentTextId = -1; // Initialize to an invalid ID
     public static void runText(Context context, MainActivity.DemoActivityViewModel demoActivityViewModel, UltraliteSDK ultralite, String textToDisplay) throws MainActivity.Stop {
         Log.d("DemoCanvasLayout", "Displaying text: " + textToDisplay);
         showText(context, demoActivityViewModel, ultralite, textToDisplay);
@@ -36,16 +34,18 @@ public class DemoCanvasLayout {
 
     private static void showText(Context context, MainActivity.DemoActivityViewModel demoActivityViewModel, UltraliteSDK ultralite, String textToDisplay) throws MainActivity.Stop {
         // Note, the caller already has requested control, and is observing the state of the glasses
+        // Whatever was on the glasses before is stopped and forgotten, the new layout starts empty
+        demoActivityViewModel.clearForCanvas();
         ultralite.setLayout(Layout.CANVAS, 0, true);
 
-        if (currentTextId != -1) {
-            ultralite.getCanvas().removeText(currentTextId);
-            currentTextId = -1;
-        }
-        currentTextId = ultralite.getCanvas().createText(textToDisplay, TextAlignment.AUTO, UltraliteColor.WHITE, Anchor.CENTER, 0, 0, 640, -1, TextWrapMode.WRAP, true);
-        if (currentTextId == -1) {
-            Log.e("DemoCanvasLayout", "Error creating text on canvas.");
+        // The transaction only sends what is left of these changes when we commit
+        // The ID of the previous text is kept by the ViewModel, which forgets it when the canvas is reset
+        CanvasTransaction canvas = demoActivityViewModel.getCanvasTransaction();
+        if (demoActivityViewModel.getShownTextId() != -1) {
+            canvas.removeText(demoActivityViewModel.getShownTextId());
         }
+        int textId = canvas.createText(textToDisplay, TextAlignment.AUTO, UltraliteColor.WHITE, Anchor.CENTER, 0, 0, 640, -1, TextWrapMode.WRAP, true);
+        demoActivityViewModel.setShownTextId(textId);
         // In the canvas layout, we always call commit to ensure the state of the glasses matches
         // all the previous commands we have sent. We can change multiple elements before calling
         // commit() a single time. Certain changes may take effect without the commit(), but calling
@@ -53,7 +53,10 @@ public class DemoCanvasLayout {
 
         // Please note this simple example is not requesting an acknowledgement from the glasses
         // which would be critical for synchronizing a phone display to the glasses display.
-        ultralite.getCanvas().commit();
+        if (!canvas.commit()) {
+            Log.e("DemoCanvasLayout", "Error creating text on canvas.");
+            demoActivityViewModel.setShownTextId(-1);
+        }
         //demoActivityViewModel.pause(5000);
     }
 
@@ -16,16 +16,15 @@ public class DemoScrollLiveText {
     // lines are appended together as time goes on. This simulates data coming back from a speech
     // recognizer in chunks. The display will take those chunks and break it into screen lines
     // and send it appropriately.
-    private static void chunkStringsToEngine(MainActivity.DemoActivityViewModel demoActivityViewModel, LiveText liveTextSender, int intervalMs, String[] fullStrings) throws MainActivity.Stop {
-        String fullTextToSend = "";
+    private static void chunkStringsToEngine(MainActivity.DemoActivityViewModel demoActivityViewModel, CaptionStream captions, int intervalMs, String[] fullStrings) throws MainActivity.Stop {
         for (String eachLine : fullStrings) {
             // We append lines together to simulate the results of a speech engine. It will give us a partial
             // result, then update that over and over again, growing and changing the text as it goes.
             // As long as we use one LiveText class, it will manage this properly. So, for the demo, we
             // just send a block of text (with no correlation to screen lines) and let the LiveText break
-            // it into lines and show what it needs to.
-            fullTextToSend += eachLine + " ";
-            liveTextSender.sendText(fullTextToSend);
+            // it into lines and show what it needs to. The CaptionStream only keeps the recent text, so
+            // this costs the same on the thousandth line as on the first.
+            captions.append(eachLine + " ");
             // We pause as we parse the text array to simulate the speech engine giving us data over time
             demoActivityViewModel.pause(intervalMs);
         }
@@ -42,13 +41,14 @@ public class DemoScrollLiveText {
                                                // the screen, 1 up from the bottom, we can choose between 1 and 9, and we choose 3).
         ultralite.setLayout(Layout.SCROLL, 0, true, true, 0);
         LiveText liveTextSender = new LiveText(ultralite, sliceHeightInPixels, sliceWidthInPixels, startingScreenLocation, numberLinesShowing, null);
+        CaptionStream captions = new CaptionStream(liveTextSender, CaptionStream.DEFAULT_WINDOW_CHARS);
         // Often the LiveText is used with a speech recognition engine that gives us results. We will
         // simulate that by sending some arrays.
         String[] text = context.getResources().getStringArray(R.array.live_text_demo_text_1);
-        chunkStringsToEngine(demoActivityViewModel, liveTextSender, 2000, text);
+        chunkStringsToEngine(demoActivityViewModel, captions, 2000, text);
         demoActivityViewModel.pause(1000);
         text = context.getResources().getStringArray(R.array.live_text_demo_text_2);
-        chunkStringsToEngine(demoActivityViewModel, liveTextSender, 2000, text);
+        chunkStringsToEngine(demoActivityViewModel, captions, 2000, text);
         demoActivityViewModel.pause(1000);
     }
 }
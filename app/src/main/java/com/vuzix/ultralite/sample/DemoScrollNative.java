@@ -3,9 +3,11 @@ package com.vuzix.ultralite.sample;
 import android.content.Context;
 
 import com.vuzix.ultralite.EventListener;
+import com.vuzix.ultralite.LVGLImage;
 import com.vuzix.ultralite.Layout;
 import com.vuzix.ultralite.UltraliteSDK;
-import com.vuzix.ultralite.utils.scroll.TextToImageSlicer;
+
+import java.util.concurrent.TimeoutException;
 
 /**
  * The SCROLL layout gives us a mechanism to send text in any font, including mixed fonts to the
@@ -25,42 +27,29 @@ public class DemoScrollNative {
     final static int lowestLineShowing = 0;
     final static int maxLinesShowing = 3;
     final static int fastScrollMilliSecs = 500;
+    final static int ackWindow = maxLinesShowing; // Acks allowed in flight while filling the screen
+    final static int sliceLookAhead = 4; // Slices rendered ahead of the one being sent
 
     public static void runDemo(Context context, MainActivity.DemoActivityViewModel demoActivityViewModel, UltraliteSDK ultralite) throws MainActivity.Stop {
-        AckWaiter ackWaiter = new AckWaiter(ultralite);
+        AckWaiter ackWaiter = new AckWaiter(ultralite, ackWindow, AckWaiter.DEFAULT_TIMEOUT_MS);
         ultralite.setLayout(Layout.SCROLL, 0, true, true, 0);
         UltraliteSDK.ScrollingTextView scrollingTextView = ultralite.getScrollingTextView();
         scrollingTextView.scrollLayoutConfig(sliceHeight, lowestLineShowing, maxLinesShowing, fastScrollMilliSecs, false);
         String teleprompterContents = context.getString(R.string.scroll_layout_native_text);
 
-        // This SDK class breaks up a huge text line into multiple slices. Each slice represents a
-        // single line of text. These slices be sent to the glasses which can efficiently show them
-        // and animate them as we expect in a teleprompter.
-        TextToImageSlicer slicer = new TextToImageSlicer(teleprompterContents, sliceHeight, fontSize);
-        int i = 0;
-        // First let's fill the entire screen without waiting, and without scrolling
-        while (slicer.hasMoreSlices() && (i<maxLinesShowing) ) {
-            // We send the line to the explicit index of the screen without scrolling the screen
-            final boolean scrollFirst = false;
-            final int sliceIndexNumber = maxLinesShowing - 1 - i;
-            scrollingTextView.sendScrollImage(slicer.getNextSlice(), sliceIndexNumber, scrollFirst);
-            // we'll wait until the glasses confirm each line has arrived, although this is not
-            // necessary as the underlying queue does this. But it demonstrates this mechanism which
-            // could allow us to synchronize our UI with the glasses UI
-            ackWaiter.waitForAck("Send line of text as image");
-            // When this wait finishes, the glasses have replied that they received the text we just sent
-            i++;
-        }
-        // Continue slicing the rest of that same content with some pauses in between
-        while (slicer.hasMoreSlices()) {
-            demoActivityViewModel.pause(2000);
-            // Now we will just send the bottom slice, and request that the previous bottom be
-            // scrolled up one position before accepting this as the new bottom slice
-            final boolean scrollFirst = true;
-            final int bottomSliceIndex = 0;
-            scrollingTextView.sendScrollImage(slicer.getNextSlice(), bottomSliceIndex, scrollFirst);
+        // The SDK class TextToImageSlicer breaks up a huge text line into multiple slices. Each slice
+        // represents a single line of text. These slices be sent to the glasses which can efficiently
+        // show them and animate them as we expect in a teleprompter. The pipeline runs the slicer on
+        // a worker thread, so the next lines are rendered while this thread sends the current one.
+        SlicePipeline slicer = new SlicePipeline(teleprompterContents, sliceHeight, fontSize, sliceLookAhead);
+        try {
+            sendSlices(demoActivityViewModel, scrollingTextView, ackWaiter, slicer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore interruption status
+            throw new MainActivity.Stop(true, "Interrupted while sending lines");
+        } finally {
+            slicer.cancel();
         }
-        demoActivityViewModel.pause(2000);
 
         // We can then reconfigure to have a 4 second animation time
         scrollingTextView.scrollLayoutConfig(sliceHeight, lowestLineShowing, maxLinesShowing, 4000, false);
@@ -93,4 +82,42 @@ public class DemoScrollNative {
         scrollingTextView.clear(maxLinesShowing - 1);
         demoActivityViewModel.pause(2000);
     }
+
+    private static void sendSlices(MainActivity.DemoActivityViewModel demoActivityViewModel, UltraliteSDK.ScrollingTextView scrollingTextView,
+                                   AckWaiter ackWaiter, SlicePipeline slicer) throws MainActivity.Stop, InterruptedException {
+        int i = 0;
+        LVGLImage slice;
+        // First let's fill the entire screen without waiting, and without scrolling
+        while (i < maxLinesShowing && (slice = slicer.next()) != null) {
+            // We send the line to the explicit index of the screen without scrolling the screen
+            final boolean scrollFirst = false;
+            final int sliceIndexNumber = maxLinesShowing - 1 - i;
+            scrollingTextView.sendScrollImage(slice, sliceIndexNumber, scrollFirst);
+            LinkMetrics.get().recordScrollSlice(sliceHeight);
+            // We ask the glasses to confirm each line has arrived, although this is not necessary
+            // as the underlying queue does this. But it demonstrates this mechanism which could
+            // allow us to synchronize our UI with the glasses UI. Up to ackWindow acks can be
+            // outstanding, so the next line goes out while the previous one is still in transit.
+            ackWaiter.requestAck("Send line of text as image " + i);
+            i++;
+        }
+        // When this wait finishes, the glasses have replied that they received every line we sent
+        try {
+            ackWaiter.awaitOutstanding();
+        } catch (TimeoutException e) {
+            throw new MainActivity.Stop(true, e.getMessage());
+        }
+        // Continue with the rest of that same content with some pauses in between, the pipeline
+        // renders the next slices meanwhile
+        while ((slice = slicer.next()) != null) {
+            demoActivityViewModel.pause(2000);
+            // Now we will just send the bottom slice, and request that the previous bottom be
+            // scrolled up one position before accepting this as the new bottom slice
+            final boolean scrollFirst = true;
+            final int bottomSliceIndex = 0;
+            scrollingTextView.sendScrollImage(slice, bottomSliceIndex, scrollFirst);
+            LinkMetrics.get().recordScrollSlice(sliceHeight);
+        }
+        demoActivityViewModel.pause(2000);
+    }
 }
@@ -6,7 +6,6 @@ import com.vuzix.ultralite.EventListener;
 import com.vuzix.ultralite.LVGLImage;
 import com.vuzix.ultralite.Layout;
 import com.vuzix.ultralite.UltraliteSDK;
-import com.vuzix.ultralite.utils.scroll.TextToImageSlicer;
 
 /**
  * This class demonstrates using tap input from the glasses.
@@ -29,11 +28,16 @@ public class DemoTapInput {
         UltraliteSDK.ScrollingTextView scrollingTextView = ultralite.getScrollingTextView();
         scrollingTextView.scrollLayoutConfig(sliceHeight, lowestLineShowing, maxLinesShowing, fastScrollMilliSecs, false);
 
-        // Create several images of text we can choose between to show the status
-        LVGLImage tapOnce = new TextToImageSlicer(context.getString(R.string.tap_once), sliceHeight, fontSize).getSliceAt(0);
-        LVGLImage tapTwice = new TextToImageSlicer(context.getString(R.string.tap_twice), sliceHeight, fontSize).getSliceAt(0);
-        LVGLImage tappedOnce = new TextToImageSlicer(context.getString(R.string.tapped_1), sliceHeight, fontSize).getSliceAt(0);
-        LVGLImage tappedTwice = new TextToImageSlicer(context.getString(R.string.tapped_2), sliceHeight, fontSize).getSliceAt(0);
+        // Create several images of text we can choose between to show the status. They are
+        // independent, so they are rendered in parallel, and only the first time the demo runs;
+        // after that they come from the slice cache.
+        LVGLImage[] statusImages = SlicePipeline.renderFirstSlices(new String[]{
+                context.getString(R.string.tap_once), context.getString(R.string.tap_twice),
+                context.getString(R.string.tapped_1), context.getString(R.string.tapped_2)}, sliceHeight, fontSize);
+        LVGLImage tapOnce = statusImages[0];
+        LVGLImage tapTwice = statusImages[1];
+        LVGLImage tappedOnce = statusImages[2];
+        LVGLImage tappedTwice = statusImages[3];
 
         // We need to add an event listener if we want to know when the taps occur
         TapListener tapListener = new TapListener();
@@ -41,18 +45,22 @@ public class DemoTapInput {
 
         // Show the instructions on the glasses
         scrollingTextView.sendScrollImage(tapOnce, lowestLineShowing, false);
+        LinkMetrics.get().recordScrollSlice(sliceHeight);
         int numTaps;
         do {
             numTaps = tapListener.waitForTaps();
             if(numTaps == 1) {
                 // Got one tap, indicate we got it
                 scrollingTextView.sendScrollImage(tappedOnce, lowestLineShowing, true);
+                LinkMetrics.get().recordScrollSlice(sliceHeight);
                 // Now configures to allow double-taps, and instruct the user to tap twice
                 scrollingTextView.sendScrollImage(tapTwice, lowestLineShowing, true);
+                LinkMetrics.get().recordScrollSlice(sliceHeight);
             }
         } while (numTaps != 2);
         // We got 2 taps, indicate this on the glasses
         scrollingTextView.sendScrollImage(tappedTwice, lowestLineShowing, true);
+        LinkMetrics.get().recordScrollSlice(sliceHeight);
         scrollingTextView.scrollNow();
         demoActivityViewModel.pause(2000);
         // Unregister this so our listener stops being called
@@ -76,6 +76,8 @@ public class DisplayFragment extends Fragment {
         textInput = view.findViewById(R.id.textBox);
         Button displayButton = view.findViewById(R.id.displayTextButton);
         Button clearButton = view.findViewById(R.id.clearTextButton);
+        Button imageButton = view.findViewById(R.id.displayImageButton);
+        Button pictureButton = view.findViewById(R.id.displayPictureButton);
 
         // Load saved text
         SharedPreferences prefs = requireActivity().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
@@ -98,6 +100,8 @@ public class DisplayFragment extends Fragment {
             connectedImageView.setImageResource(connected ? R.drawable.ic_check_24 : R.drawable.ic_close_24);
             displayButton.setEnabled(connected);
             clearButton.setEnabled(connected);
+            imageButton.setEnabled(connected);
+            pictureButton.setEnabled(connected);
             updateBatteryDisplayVisibility(ultralite.getAvailable().getValue() != null && ultralite.getAvailable().getValue() && ultralite.getLinked().getValue() != null && ultralite.getLinked().getValue() && connected);
             if (connected) {
                 startBatteryMonitoringForGlasses(); // Changed method name for clarity
@@ -121,11 +125,11 @@ public class DisplayFragment extends Fragment {
             model.displayTextOnGlasses(originalMessage);
         });
 
-        clearButton.setOnClickListener(v -> {
-            if (ultralite != null) {
-                ultralite.releaseControl();
-            }
-        });
+        clearButton.setOnClickListener(v -> model.releaseControl());
+
+        imageButton.setOnClickListener(v -> model.displayImageOnGlasses(R.drawable.rocket));
+
+        pictureButton.setOnClickListener(v -> model.displayPictureOnGlasses(R.drawable.ultralite_large_ori));
 
         // Initial check in case already connected when view is created
         if (ultralite.getConnected().getValue() != null && ultralite.getConnected().getValue()) {
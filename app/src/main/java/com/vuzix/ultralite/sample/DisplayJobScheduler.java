@@ -0,0 +1,122 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs display jobs on the {@link RenderThread} so that only the newest request matters.
+ *
+ * At most one job waits while another runs. Submitting a job replaces the waiting one (which is
+ * dropped without ever running) and cancels the running one, so hitting Display repeatedly never
+ * builds up a backlog of stale text. Cancellation is cooperative: a running job sees it through its
+ * {@link CancellationSignal}, or is woken early from {@link #sleepUnlessCancelled(long)}.
+ */
+class DisplayJobScheduler {
+    interface Job {
+        void run(@NonNull CancellationSignal signal);
+    }
+
+    private final RenderThread renderThread;
+    private Job pendingJob;
+    private CancellationSignal pendingSignal;
+    private CancellationSignal runningSignal;
+    private int dropped;
+    private int cancelled;
+
+    DisplayJobScheduler(@NonNull RenderThread renderThread) {
+        this.renderThread = renderThread;
+    }
+
+    /** Queues a job, superseding every job submitted before it. */
+    void submit(@NonNull Job job) {
+        synchronized (this) {
+            if (runningSignal != null && !runningSignal.isCanceled()) {
+                runningSignal.cancel();
+                cancelled++;
+            }
+            boolean alreadyPosted = pendingJob != null;
+            if (alreadyPosted) {
+                pendingSignal.cancel();
+                dropped++;
+            }
+            pendingJob = job;
+            pendingSignal = new CancellationSignal();
+            notifyAll();   // Wakes a running job that is sleeping
+            if (alreadyPosted) return;   // The posted runner picks up the replacement
+        }
+        renderThread.post(this::runPending);
+    }
+
+    /** Cancels the running job and drops the waiting one. */
+    void cancelAll() {
+        synchronized (this) {
+            if (runningSignal != null && !runningSignal.isCanceled()) {
+                runningSignal.cancel();
+                cancelled++;
+            }
+            if (pendingJob != null) {
+                pendingSignal.cancel();
+                pendingJob = null;
+                dropped++;
+            }
+            notifyAll();
+        }
+    }
+
+    /** Jobs running or waiting to run, at most 2. */
+    synchronized int getQueueDepth() {
+        return (pendingJob != null ? 1 : 0) + (runningSignal != null ? 1 : 0);
+    }
+
+    /** Jobs that were superseded before they started. */
+    synchronized int getDroppedCount() {
+        return dropped;
+    }
+
+    /** Jobs that were superseded while running. */
+    synchronized int getCancelledCount() {
+        return cancelled;
+    }
+
+    /**
+     * For use by the running job: sleeps for {@code ms}, or less if the job gets cancelled.
+     *
+     * @return False if the job was cancelled
+     */
+    boolean sleepUnlessCancelled(long ms) throws InterruptedException {
+        long end = SystemClock.uptimeMillis() + ms;
+        synchronized (this) {
+            long remaining;
+            while (!isRunningJobCancelled() && (remaining = end - SystemClock.uptimeMillis()) > 0) {
+                wait(remaining);
+            }
+            return !isRunningJobCancelled();
+        }
+    }
+
+    private boolean isRunningJobCancelled() {
+        return runningSignal != null && runningSignal.isCanceled();
+    }
+
+    private void runPending() {
+        Job job;
+        CancellationSignal signal;
+        synchronized (this) {
+            job = pendingJob;
+            signal = pendingSignal;
+            pendingJob = null;
+            pendingSignal = null;
+            if (job == null) return;
+            runningSignal = signal;
+        }
+        try {
+            job.run(signal);
+        } finally {
+            synchronized (this) {
+                runningSignal = null;
+            }
+        }
+    }
+}
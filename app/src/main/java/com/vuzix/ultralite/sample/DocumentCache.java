@@ -0,0 +1,237 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * On-disk cache of the parsed form of Markdown notes, so reopening an unchanged note does not have
+ * to scan or format it again.
+ *
+ * Each entry holds the line index of the note and every line already formatted for the glasses. It
+ * is keyed by the document URI together with the last-modified time and size reported by the
+ * {@link DocumentsContract} provider; if either changes, the entry no longer matches and is rebuilt.
+ *
+ * Entries are written to a temporary file and renamed into place, so a crash mid-write never leaves
+ * a corrupt entry behind. The formatted lines are read back through a memory-mapped view and decoded
+ * one at a time, like the note itself.
+ */
+class DocumentCache {
+    private static final String TAG = "DocumentCache";
+    private static final int MAGIC = 0x4F425349;  // "OBSI"
+    private static final int VERSION = 1;
+    private static final int MAX_ENTRIES = 16;
+
+    private final File dir;
+
+    DocumentCache(@NonNull File cacheDir) {
+        dir = new File(cacheDir, "documents");
+    }
+
+    /** Identifies one version of a document. */
+    static class Key {
+        final Uri uri;
+        final long lastModified;
+        final long size;
+
+        Key(@NonNull Uri uri, long lastModified, long size) {
+            this.uri = uri;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        /** True if both describe the same version of the file. */
+        boolean sameVersion(@NonNull Key other) {
+            return lastModified == other.lastModified && size == other.size;
+        }
+
+        /**
+         * Asks the provider for the current version of the document.
+         *
+         * @return The key, or null if the provider does not report when the document was modified,
+         * in which case it cannot be cached safely
+         */
+        @Nullable
+        static Key query(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+            String[] projection = {DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+                    DocumentsContract.Document.COLUMN_SIZE};
+            try (Cursor cursor = resolver.query(uri, projection, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0) && !cursor.isNull(1)) {
+                    return new Key(uri, cursor.getLong(0), cursor.getLong(1));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Could not query metadata of " + uri, e);
+            }
+            return null;
+        }
+    }
+
+    /** What the cache knows about one version of a document. */
+    static class Entry {
+        final MarkdownDocument.LineIndex index;
+        final FormattedLines formattedLines;
+
+        Entry(MarkdownDocument.LineIndex index, FormattedLines formattedLines) {
+            this.index = index;
+            this.formattedLines = formattedLines;
+        }
+    }
+
+    /** Lines formatted for the glasses, decoded on demand from a mapped cache file. */
+    static class FormattedLines {
+        private final ByteBuffer bytes;
+        private final int blobStart;
+        private final int offsetsStart;
+        private final int lineCount;
+        private byte[] lineBuffer = new byte[256];
+
+        FormattedLines(ByteBuffer bytes, int blobStart, int offsetsStart, int lineCount) {
+            this.bytes = bytes;
+            this.blobStart = blobStart;
+            this.offsetsStart = offsetsStart;
+            this.lineCount = lineCount;
+        }
+
+        int size() {
+            return lineCount;
+        }
+
+        @NonNull
+        synchronized String get(int line) {
+            int start = blobStart + bytes.getInt(offsetsStart + line * 4);
+            int end = blobStart + bytes.getInt(offsetsStart + (line + 1) * 4);
+            int len = end - start;
+            if (lineBuffer.length < len) lineBuffer = new byte[Math.max(len, lineBuffer.length * 2)];
+            for (int i = 0; i < len; i++) lineBuffer[i] = bytes.get(start + i);
+            return new String(lineBuffer, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Looks up a document.
+     *
+     * @return The entry, or null if this version of the document has not been cached
+     */
+    @Nullable
+    Entry read(@NonNull Key key) {
+        File file = fileFor(key.uri);
+        if (!file.exists()) return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (bytes.getInt() != MAGIC || bytes.getInt() != VERSION) return null;
+            byte[] uri = new byte[bytes.getInt()];
+            bytes.get(uri);
+            if (!key.uri.toString().equals(new String(uri, StandardCharsets.UTF_8))) return null;
+            if (bytes.getLong() != key.lastModified || bytes.getLong() != key.size) return null;
+
+            int lineCount = bytes.getInt();
+            int length = bytes.getInt();
+            MarkdownDocument.LineIndex index = new MarkdownDocument.LineIndex();
+            for (int i = 0; i < lineCount; i++) index.add(bytes.getInt());
+            index.setLength(length);
+            int blobStart = bytes.position();
+            int offsetsStart = bytes.capacity() - (lineCount + 1) * 4;
+            // Mark the entry as recently used for eviction
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(index, new FormattedLines(bytes, blobStart, offsetsStart, lineCount));
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable cache entry " + file, e);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Formats every line of the document and stores it together with the line index. This is slow
+     * for big notes and should run in the background; it stops early if the thread is interrupted.
+     *
+     * @return The newly written formatted lines
+     */
+    @NonNull
+    FormattedLines write(@NonNull Key key, @NonNull MarkdownDocument document, @NonNull MarkdownDocument.LineIndex index) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+        File file = fileFor(key.uri);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        int lineCount = document.getLineCount();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+                byte[] uri = key.uri.toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(uri.length);
+                out.write(uri);
+                out.writeLong(key.lastModified);
+                out.writeLong(key.size);
+                out.writeInt(lineCount);
+                out.writeInt(document.getLength());
+                for (int i = 0; i < lineCount; i++) out.writeInt(index.start(i));
+
+                // The formatted lines, followed by where each one starts. The offsets go last since
+                // they are only known once the lines have been written.
+                int[] offsets = new int[lineCount + 1];
+                int blobStart = out.size();
+                LineFormatter.formatAll(document, (line, formatted) -> {
+                    offsets[line] = out.size() - blobStart;
+                    out.write(formatted.getBytes(StandardCharsets.UTF_8));
+                });
+                offsets[lineCount] = out.size() - blobStart;
+                for (int offset : offsets) out.writeInt(offset);
+            }
+            if (!tmp.renameTo(file)) throw new IOException("Could not rename " + tmp + " to " + file);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+        evict();
+        Entry entry = read(key);
+        if (entry == null) throw new IOException("Could not read back " + file);
+        return entry.formattedLines;
+    }
+
+    // Keeps the most recently used entries
+    private void evict() {
+        File[] files = dir.listFiles((d, name) -> !name.endsWith(".tmp"));
+        if (files == null || files.length <= MAX_ENTRIES) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = MAX_ENTRIES; i < files.length; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
+
+    private File fileFor(Uri uri) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) name.append(String.format("%02x", b));
+            return new File(dir, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Notices when the loaded note is changed by another app, such as Obsidian or a sync client.
+ *
+ * Providers do not reliably notify content observers about such changes, so besides registering a
+ * {@link ContentObserver} on the URI the watcher polls the last-modified time and size that
+ * {@link android.provider.DocumentsContract} reports every {@link #POLL_MS}. While the document has
+ * edits that are not saved yet it is not checked; saving them wins over the other app.
+ *
+ * Our own saves change the metadata too. {@link #rebaseline} after a save keeps them from counting
+ * as a change; one that slips through only costs a reload that finds nothing changed.
+ *
+ * Queries run on the watcher's own thread; the listener is called on the main thread.
+ */
+class DocumentWatcher {
+    private static final String TAG = "DocumentWatcher";
+    static final long POLL_MS = 3000;
+
+    interface Listener {
+        /** The file of the document changed, and the document has no unsaved edits. */
+        void onChanged(@NonNull EditableDocument document);
+    }
+
+    private final ContentResolver resolver;
+    private final Listener listener;
+    private final HandlerThread thread = new HandlerThread("DocumentWatcher");
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ContentObserver observer;
+    private EditableDocument document;       // Watcher thread only, like baseline
+    private DocumentCache.Key baseline;
+    private boolean observing;
+
+    DocumentWatcher(@NonNull ContentResolver resolver, @NonNull Listener listener) {
+        this.resolver = resolver;
+        this.listener = listener;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        observer = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                check();
+            }
+        };
+    }
+
+    /** Starts watching the file of this document, replacing the document watched so far. */
+    void watch(@NonNull EditableDocument document) {
+        handler.post(() -> {
+            unregister();
+            this.document = document;
+            baseline = DocumentCache.Key.query(resolver, document.getUri());
+            try {
+                resolver.registerContentObserver(document.getUri(), false, observer);
+                observing = true;
+            } catch (SecurityException e) {
+                Log.d(TAG, "Cannot observe " + document.getUri() + ", polling only", e);
+            }
+            handler.removeCallbacks(poll);
+            handler.postDelayed(poll, POLL_MS);
+        });
+    }
+
+    /** Takes the file as it is now as the version the document was loaded from. */
+    void rebaseline(@NonNull EditableDocument document) {
+        handler.post(() -> {
+            if (this.document == document) baseline = DocumentCache.Key.query(resolver, document.getUri());
+        });
+    }
+
+    /** Stops watching and ends the watcher thread. */
+    void shutdown() {
+        handler.post(() -> {
+            unregister();
+            document = null;
+            thread.quit();
+        });
+    }
+
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            check();
+            if (document != null) handler.postDelayed(this, POLL_MS);
+        }
+    };
+
+    private void check() {
+        EditableDocument current = document;
+        if (current == null || current.hasUnsavedEdits()) return;
+        DocumentCache.Key key = DocumentCache.Key.query(resolver, current.getUri());
+        if (key == null) return;
+        if (baseline != null && key.sameVersion(baseline)) return;
+        boolean first = baseline == null;
+        baseline = key;
+        if (first) return;
+        Log.i(TAG, current.getUri() + " changed outside the app");
+        mainHandler.post(() -> listener.onChanged(current));
+    }
+
+    private void unregister() {
+        handler.removeCallbacks(poll);
+        if (observing) {
+            resolver.unregisterContentObserver(observer);
+            observing = false;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Saves the edits made to an {@link EditableDocument} back to its content URI.
+ *
+ * Edits are not written one by one. {@link #markDirty} waits until the document has been left
+ * alone for {@link #DEBOUNCE_MS}, or at most {@link #MAX_DELAY_MS} after the first unsaved edit, and
+ * then writes every edit made so far in one go.
+ *
+ * Only what changed is written. The leading pieces that are the same as at the last save are
+ * already in the file, so writing starts at the first byte that differs and the file is truncated
+ * after the new end. The text goes to a journal in the app cache first, which is synced under a
+ * temporary name and then renamed; only a complete journal has its final name. Only then is the
+ * tail copied into the document, and the journal is deleted once that is synced too. A save cut
+ * off half way is finished from the journal by {@link #recover} before the document is next read,
+ * and a journal that was never completed is discarded, so the document ends up with either the old
+ * or the new text.
+ *
+ * That only holds if nobody else wrote the file in between. Before each save the provider's
+ * last-modified time and size are compared with those the file had when it was read or last saved;
+ * if another app changed it, nothing is written and the listener gets an error. Recovery rewrites
+ * the whole text instead of patching a file that is no longer the version the journal expects, and
+ * so does a save when the provider does not report those.
+ *
+ * Providers that only hand out streams get the whole text, through the same journal. Listener
+ * callbacks are delivered on the main thread.
+ */
+class DocumentWriter {
+    private static final String TAG = "DocumentWriter";
+    static final long DEBOUNCE_MS = 1000;
+    static final long MAX_DELAY_MS = 5000;
+    private static final int MAGIC = 0x4A524E4C;  // "JRNL"
+    private static final int VERSION = 2;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    interface Listener {
+        void onSaved(@NonNull EditableDocument document, int version);
+
+        void onError(@NonNull EditableDocument document, @NonNull Exception e);
+    }
+
+    private final ContentResolver resolver;
+    private final File cacheDir;
+    private final Listener listener;
+    private final HandlerThread thread = new HandlerThread("DocumentWriter");
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private EditableDocument dirty;          // Guarded by this
+    private long firstDirtyUptime;
+    private EditableDocument savedDocument;  // Writer thread only, like saved
+    private EditableDocument.Snapshot saved; // What the file holds
+    private DocumentCache.Key savedKey;       // Version of the file when it was read or last saved
+
+    DocumentWriter(@NonNull ContentResolver resolver, @NonNull File cacheDir, @NonNull Listener listener) {
+        this.resolver = resolver;
+        this.cacheDir = cacheDir;
+        this.listener = listener;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /** Schedules a save of the document. A different document that was still unsaved is saved now. */
+    synchronized void markDirty(@NonNull EditableDocument document) {
+        long now = SystemClock.uptimeMillis();
+        if (dirty != null && dirty != document) {
+            final EditableDocument previous = dirty;
+            handler.post(() -> save(previous));
+            firstDirtyUptime = 0;
+        }
+        dirty = document;
+        if (firstDirtyUptime == 0) firstDirtyUptime = now;
+        handler.removeCallbacks(saveDirty);
+        long delay = Math.min(DEBOUNCE_MS, firstDirtyUptime + MAX_DELAY_MS - now);
+        handler.postDelayed(saveDirty, Math.max(0, delay));
+    }
+
+    /** Saves any unsaved edits now and stops the writer thread once that is done. */
+    synchronized void shutdown() {
+        handler.removeCallbacks(saveDirty);
+        handler.post(saveDirty);
+        thread.quitSafely();
+    }
+
+    private final Runnable saveDirty = () -> {
+        EditableDocument document;
+        synchronized (this) {
+            document = dirty;
+            dirty = null;
+            firstDirtyUptime = 0;
+        }
+        if (document != null) save(document);
+    };
+
+    private void save(EditableDocument document) {
+        if (savedDocument != document) {
+            savedDocument = document;
+            saved = document.getInitialSnapshot();
+            savedKey = document.getOriginal().getFileKey();
+        }
+        EditableDocument.Snapshot snapshot = document.snapshot();
+        if (snapshot.version == saved.version) return;
+        try {
+            DocumentCache.Key current = DocumentCache.Key.query(resolver, document.getUri());
+            if (savedKey != null && current != null && !savedKey.sameVersion(current)) {
+                // Another app wrote the file since we read or saved it; patching it would mix the two
+                throw new IOException(document.getUri() + " was changed by another app, the edits were not saved");
+            }
+            write(document.getUri(), snapshot, savedKey != null ? current : null);
+            saved = snapshot;
+            savedKey = DocumentCache.Key.query(resolver, document.getUri());
+            document.markSaved(snapshot.version);
+            final int version = snapshot.version;
+            Log.d(TAG, "Saved version " + version + " of " + document.getUri());
+            mainHandler.post(() -> listener.onSaved(document, version));
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not save " + document.getUri(), e);
+            mainHandler.post(() -> listener.onError(document, e));
+        }
+    }
+
+    /**
+     * @param current The version of the file the last save left, or null if that is not known, in
+     *                which case the whole text is written
+     */
+    private void write(Uri uri, EditableDocument.Snapshot snapshot, @Nullable DocumentCache.Key current)
+            throws IOException {
+        MarkdownDocument original = snapshot.original;
+        byte[] separator = (original.usesCrLf() ? "\r\n" : "\n").getBytes(StandardCharsets.US_ASCII);
+        File journal = journalFile(cacheDir, uri);
+        try (ParcelFileDescriptor pfd = openForRandomAccess(resolver, uri)) {
+            long offset = pfd != null && current != null ? unchangedBytes(snapshot, separator) : -1;
+
+            // Written under a temporary name and renamed once synced, so a journal that exists is complete
+            File partial = partialFile(journal);
+            try (FileOutputStream fos = new FileOutputStream(partial);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(uri.toString());
+                out.writeLong(current != null ? current.lastModified : -1);
+                out.writeLong(current != null ? current.size : -1);
+                out.writeLong(offset);
+                // The whole text, so recovery can still rewrite a file it cannot patch
+                if (original.getLineCount() > 0) original.writeBytes(0, original.getLineStart(0), out);
+                for (int piece = 0; piece < snapshot.size(); piece++) {
+                    writePiece(snapshot, piece, 0, piece == snapshot.size() - 1, separator, out);
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            if (!partial.renameTo(journal)) {
+                //noinspection ResultOfMethodCallIgnored
+                partial.delete();
+                throw new IOException("Could not commit the journal for " + uri);
+            }
+            applyJournal(resolver, uri, journal, pfd, current);
+        }
+    }
+
+    /*
+     * The bytes at the start of the file that are the same as at the last save, or -1 to replace
+     * the whole text. The last piece is never counted, since whether it ends with a line break
+     * depends on what follows it.
+     */
+    private long unchangedBytes(EditableDocument.Snapshot snapshot, byte[] separator) {
+        MarkdownDocument original = snapshot.original;
+        long offset = original.getLineCount() > 0 ? original.getLineStart(0) : 0;   // After a BOM
+        for (int piece = 0; piece < snapshot.size() - 1 && piece < saved.size() - 1; piece++) {
+            if (snapshot.sources[piece] != saved.sources[piece] || snapshot.starts[piece] != saved.starts[piece]) break;
+            int common = Math.min(snapshot.counts[piece], saved.counts[piece]);
+            offset += bytesOf(snapshot, piece, common, separator);
+            if (common < snapshot.counts[piece] || common < saved.counts[piece]) break;
+        }
+        return offset;
+    }
+
+    /**
+     * Finishes a save that was interrupted, if the journal of one is left for this URI. Called on a
+     * background thread before the document is read.
+     */
+    static void recover(@NonNull ContentResolver resolver, @NonNull File cacheDir, @NonNull Uri uri) {
+        File journal = journalFile(cacheDir, uri);
+        // A journal still under its temporary name was cut off before it was complete; the document
+        // itself was not touched yet
+        //noinspection ResultOfMethodCallIgnored
+        partialFile(journal).delete();
+        if (!journal.exists()) return;
+        Log.i(TAG, "Finishing an interrupted save of " + uri);
+        try (ParcelFileDescriptor pfd = openForRandomAccess(resolver, uri)) {
+            applyJournal(resolver, uri, journal, pfd, DocumentCache.Key.query(resolver, uri));
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not finish saving " + uri, e);
+        }
+    }
+
+    /*
+     * Only patches the file from the journal's offset if the file is still the version the offset
+     * was worked out against. Otherwise it was partly written already, or changed by another app,
+     * and gets the whole text.
+     */
+    private static void applyJournal(ContentResolver resolver, Uri uri, File journal, @Nullable ParcelFileDescriptor pfd,
+                                     @Nullable DocumentCache.Key current) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !uri.toString().equals(in.readUTF())) {
+                Log.w(TAG, "Discarding a journal that does not belong to " + uri);
+                //noinspection ResultOfMethodCallIgnored
+                journal.delete();
+                return;
+            }
+            long lastModified = in.readLong();
+            long size = in.readLong();
+            long offset = in.readLong();
+            boolean unchanged = current != null && current.lastModified == lastModified && current.size == size;
+            if (!unchanged) offset = -1;
+            if (pfd != null) {
+                long start = Math.max(0, offset);
+                skipFully(in, start);
+                // Not closed here, the descriptor belongs to pfd
+                FileOutputStream fos = new FileOutputStream(pfd.getFileDescriptor());
+                fos.getChannel().position(start);
+                long end = start + copy(in, fos);
+                fos.getChannel().truncate(end);
+                fos.getFD().sync();
+            } else {
+                try (OutputStream os = Objects.requireNonNull(resolver.openOutputStream(uri, "wt"))) {
+                    copy(in, os);
+                    if (os instanceof FileOutputStream) ((FileOutputStream) os).getFD().sync();
+                }
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        journal.delete();
+    }
+
+    private static void skipFully(DataInputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            int n = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (n <= 0) throw new EOFException("The journal is shorter than its offset");
+            bytes -= n;
+        }
+    }
+
+    // Null if the provider only hands out a pipe or a socket, which cannot seek
+    @Nullable
+    private static ParcelFileDescriptor openForRandomAccess(ContentResolver resolver, Uri uri) {
+        try {
+            ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, "rw");
+            if (pfd != null && pfd.getStatSize() < 0) {
+                pfd.close();
+                return null;
+            }
+            return pfd;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.d(TAG, "Cannot open " + uri + " for random access, it will be rewritten", e);
+            return null;
+        }
+    }
+
+    private static void writePiece(EditableDocument.Snapshot snapshot, int piece, int skip, boolean last,
+                                   byte[] separator, OutputStream out) throws IOException {
+        int first = snapshot.starts[piece] + skip;
+        int count = snapshot.counts[piece] - skip;
+        if (snapshot.isOriginal(piece)) {
+            MarkdownDocument original = snapshot.original;
+            int lastLine = first + count - 1;
+            original.writeBytes(original.getLineStart(first), original.getLineEnd(lastLine), out);
+            // The original's last line may have no terminator, but it needs one if lines follow now
+            if (!last && !hasTerminator(original, lastLine)) out.write(separator);
+        } else {
+            for (int i = first; i < first + count; i++) {
+                out.write(snapshot.added[i].getBytes(StandardCharsets.UTF_8));
+                out.write(separator);
+            }
+        }
+    }
+
+    // Bytes taken by the first lines of a piece that is not the last one
+    private static long bytesOf(EditableDocument.Snapshot snapshot, int piece, int count, byte[] separator) {
+        int first = snapshot.starts[piece];
+        if (snapshot.isOriginal(piece)) {
+            MarkdownDocument original = snapshot.original;
+            int lastLine = first + count - 1;
+            long bytes = original.getLineEnd(lastLine) - original.getLineStart(first);
+            return hasTerminator(original, lastLine) ? bytes : bytes + separator.length;
+        }
+        long bytes = 0;
+        for (int i = first; i < first + count; i++) {
+            bytes += snapshot.added[i].getBytes(StandardCharsets.UTF_8).length + separator.length;
+        }
+        return bytes;
+    }
+
+    private static boolean hasTerminator(MarkdownDocument original, int line) {
+        return line < original.getLineCount() - 1 || original.endsWithLineBreak();
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    private static File partialFile(File journal) {
+        return new File(journal.getPath() + ".tmp");
+    }
+
+    private static File journalFile(File cacheDir, Uri uri) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + 8);
+            for (byte b : hash) name.append(String.format("%02x", b));
+            return new File(cacheDir, name.append(".journal").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
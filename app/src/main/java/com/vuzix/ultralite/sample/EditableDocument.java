@@ -0,0 +1,262 @@
+package com.vuzix.ultralite.sample;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A {@link MarkdownDocument} that can be edited line by line, as a piece table.
+ *
+ * The text is a sequence of pieces, each a run of lines taken either from the original document or
+ * from the lines added by edits. Editing never copies text: it cuts the pieces around the edit and
+ * puts a new piece in between. The pieces are kept in a treap ordered by position and weighted by
+ * line count, which is the line index: finding, inserting, deleting or replacing a line takes
+ * O(log p) for p pieces, and p only grows with the number of edits.
+ *
+ * Lines are given and returned without their terminators. All methods are thread safe.
+ */
+class EditableDocument {
+    private static final int ORIGINAL = 0;
+    private static final int ADDED = 1;
+
+    private static class Piece {
+        final int source;
+        final int start;       // First line in the source
+        int count;             // Lines in this piece; shrinks when the piece is cut
+        int lines;             // Lines in this subtree
+        final int priority;
+        Piece left, right;
+
+        Piece(int source, int start, int count, int priority) {
+            this.source = source;
+            this.start = start;
+            this.count = count;
+            this.priority = priority;
+            lines = count;
+        }
+    }
+
+    /** The pieces at one version of the document, which stay valid while it is edited further. */
+    static class Snapshot {
+        final int version;
+        final MarkdownDocument original;
+        final int[] sources;
+        final int[] starts;
+        final int[] counts;
+        final String[] added;
+
+        private Snapshot(int version, MarkdownDocument original, int pieces, String[] added) {
+            this.version = version;
+            this.original = original;
+            sources = new int[pieces];
+            starts = new int[pieces];
+            counts = new int[pieces];
+            this.added = added;
+        }
+
+        int size() {
+            return sources.length;
+        }
+
+        boolean isOriginal(int piece) {
+            return sources[piece] == ORIGINAL;
+        }
+    }
+
+    private final MarkdownDocument original;
+    private final ArrayList<String> added = new ArrayList<>();
+    private final Random random = new Random();
+    private final Snapshot initial;
+    private Piece root;
+    private int version;
+    private int savedVersion;
+
+    EditableDocument(@NonNull MarkdownDocument original) {
+        this.original = original;
+        if (original.getLineCount() > 0) root = new Piece(ORIGINAL, 0, original.getLineCount(), random.nextInt());
+        initial = snapshot();
+    }
+
+    @NonNull
+    Uri getUri() {
+        return original.getUri();
+    }
+
+    /** The document as loaded, before any edits. */
+    @NonNull
+    MarkdownDocument getOriginal() {
+        return original;
+    }
+
+    synchronized int getLineCount() {
+        return lines(root);
+    }
+
+    /** Goes up by one with every edit. */
+    synchronized int getVersion() {
+        return version;
+    }
+
+    /** Records that the file holds this version. */
+    synchronized void markSaved(int version) {
+        savedVersion = Math.max(savedVersion, version);
+    }
+
+    /** True if there are edits the file does not have yet. */
+    synchronized boolean hasUnsavedEdits() {
+        return version != savedVersion;
+    }
+
+    /** @param line Zero-based line number */
+    @NonNull
+    synchronized String getLine(int line) {
+        long found = find(line);
+        int sourceLine = (int) found;
+        return (found >>> 32) == ORIGINAL ? original.getLine(sourceLine) : added.get(sourceLine);
+    }
+
+    /**
+     * Returns the line formatted for the glasses, if it was formatted along with the original
+     * document and is still at the same line number with numbers of the same width; otherwise null.
+     */
+    @Nullable
+    synchronized String getFormattedLine(int line) {
+        if (LineFormatter.digitCount(getLineCount()) != LineFormatter.digitCount(original.getLineCount())) return null;
+        long found = find(line);
+        return (found >>> 32) == ORIGINAL && (int) found == line ? original.getFormattedLine(line) : null;
+    }
+
+    /** Inserts a line before {@code line}; {@code line} may be the line count to append. */
+    synchronized void insertLine(int line, @NonNull String text) {
+        if (line < 0 || line > getLineCount()) throw new IndexOutOfBoundsException("Line " + line);
+        Piece[] parts = split(root, line);
+        root = merge(merge(parts[0], newPiece(text)), parts[1]);
+        version++;
+    }
+
+    synchronized void deleteLine(int line) {
+        checkLine(line);
+        Piece[] before = split(root, line);
+        Piece[] after = split(before[1], 1);
+        root = merge(before[0], after[1]);
+        version++;
+    }
+
+    synchronized void replaceLine(int line, @NonNull String text) {
+        checkLine(line);
+        Piece[] before = split(root, line);
+        Piece[] after = split(before[1], 1);
+        root = merge(merge(before[0], newPiece(text)), after[1]);
+        version++;
+    }
+
+    /** The current pieces, for writing the document out while it is being edited. */
+    @NonNull
+    synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(version, original, count(root), added.toArray(new String[0]));
+        fill(root, snapshot, 0);
+        return snapshot;
+    }
+
+    /** The pieces as loaded, which is what the file holds until it is first saved. */
+    @NonNull
+    Snapshot getInitialSnapshot() {
+        return initial;
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= getLineCount()) throw new IndexOutOfBoundsException("Line " + line);
+    }
+
+    private Piece newPiece(String text) {
+        if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("A line cannot contain a line break");
+        }
+        added.add(text);
+        return new Piece(ADDED, added.size() - 1, 1, random.nextInt());
+    }
+
+    // The source and the line in it, as (source << 32) | line
+    private long find(int line) {
+        Piece t = root;
+        int k = line;
+        while (t != null) {
+            int left = lines(t.left);
+            if (k < left) {
+                t = t.left;
+            } else if (k < left + t.count) {
+                return ((long) t.source << 32) | (t.start + k - left);
+            } else {
+                k -= left + t.count;
+                t = t.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("Line " + line);
+    }
+
+    // Splits into the first k lines and the rest, cutting a piece in two if the boundary is inside it
+    private static Piece[] split(Piece t, int k) {
+        if (t == null) return new Piece[]{null, null};
+        int left = lines(t.left);
+        if (k <= left) {
+            Piece[] parts = split(t.left, k);
+            t.left = parts[1];
+            update(t);
+            return new Piece[]{parts[0], t};
+        }
+        int inPiece = k - left;
+        if (inPiece >= t.count) {
+            Piece[] parts = split(t.right, inPiece - t.count);
+            t.right = parts[0];
+            update(t);
+            return new Piece[]{t, parts[1]};
+        }
+        // The tail of the piece takes over the right subtree; same priority keeps the heap order
+        Piece tail = new Piece(t.source, t.start + inPiece, t.count - inPiece, t.priority);
+        tail.right = t.right;
+        update(tail);
+        t.count = inPiece;
+        t.right = null;
+        update(t);
+        return new Piece[]{t, tail};
+    }
+
+    private static Piece merge(Piece a, Piece b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static void update(Piece t) {
+        t.lines = lines(t.left) + t.count + lines(t.right);
+    }
+
+    private static int lines(Piece t) {
+        return t != null ? t.lines : 0;
+    }
+
+    private static int count(Piece t) {
+        return t != null ? count(t.left) + 1 + count(t.right) : 0;
+    }
+
+    // In order, returns the next free slot
+    private static int fill(Piece t, Snapshot snapshot, int i) {
+        if (t == null) return i;
+        i = fill(t.left, snapshot, i);
+        snapshot.sources[i] = t.source;
+        snapshot.starts[i] = t.start;
+        snapshot.counts[i] = t.count;
+        return fill(t.right, snapshot, i + 1);
+    }
+}
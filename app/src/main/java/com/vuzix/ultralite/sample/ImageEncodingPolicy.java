@@ -0,0 +1,97 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.vuzix.ultralite.Anchor;
+import com.vuzix.ultralite.LVGLImage;
+
+/**
+ * Picks the colour format for foreground images from what the link can currently carry.
+ *
+ * A 2-bit image is twice the size of a 1-bit one. The policy estimates how long an image would take
+ * to reach the glasses, counting the bytes still queued ahead of it, from the throughput measured by
+ * {@link LinkMetrics}. It drops to 1-bit when a 2-bit image would miss the latency budget, and only
+ * goes back to 2-bit once one would fit in half the budget, so it does not flip on every image.
+ *
+ * Background drawing only accepts 2-bit images, so this is for {@code createImage},
+ * {@code updateImage} and animations only.
+ */
+class ImageEncodingPolicy {
+    static final long DEFAULT_LATENCY_BUDGET_MS = 250;
+
+    private final long latencyBudgetMs;
+    private boolean twoBit = true;   // Until the link has been measured
+
+    ImageEncodingPolicy(long latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    /** @return {@link LVGLImage#CF_INDEXED_1_BIT} or {@link LVGLImage#CF_INDEXED_2_BIT} */
+    synchronized int chooseFormat(int width, int height) {
+        LinkMetrics metrics = LinkMetrics.get();
+        double throughput = metrics.getEstimatedThroughput();
+        if (throughput > 0) {
+            long bytes = LinkMetrics.imageBytes(width, height, LVGLImage.CF_INDEXED_2_BIT) + metrics.getBytesInFlight();
+            double twoBitMs = bytes * 1000.0 / throughput;
+            if (twoBit && twoBitMs > latencyBudgetMs) {
+                twoBit = false;
+            } else if (!twoBit && twoBitMs <= latencyBudgetMs / 2.0) {
+                twoBit = true;
+            }
+        }
+        return twoBit ? LVGLImage.CF_INDEXED_2_BIT : LVGLImage.CF_INDEXED_1_BIT;
+    }
+
+    synchronized boolean isTwoBit() {
+        return twoBit;
+    }
+
+    /**
+     * Creates an image at 1-bit so it shows as soon as possible, then replaces it with the 2-bit
+     * version once the glasses confirm the first commit, if the link has room for it by then.
+     *
+     * Must be called on the render thread; the refinement is posted back to it through
+     * {@code renderHandler}.
+     *
+     * @return The image, or null if it could not be loaded or the canvas has no image objects left
+     */
+    @Nullable
+    ProgressiveImage createProgressive(@NonNull Context context, @NonNull CanvasTransaction canvas,
+                                       @NonNull Handler renderHandler, int resourceId, @NonNull Anchor anchor) {
+        LVGLImage draft = MainActivity.loadLVGLImage(context, resourceId, true);
+        int[] size = MainActivity.imageCache.getSize(resourceId);   // Known now that the draft is cached
+        if (draft == null || size == null) return null;
+        ProgressiveImage image = new ProgressiveImage(canvas.createImage(draft, anchor));
+        boolean created = canvas.commit(() -> renderHandler.post(() -> {
+            if (image.cancelled || chooseFormat(size[0], size[1]) != LVGLImage.CF_INDEXED_2_BIT) return;
+            LVGLImage refined = MainActivity.loadLVGLImage(context, resourceId, false);
+            if (refined == null) return;
+            canvas.updateImage(image.id, refined);
+            canvas.commit();
+        }));
+        if (!created) {
+            image.cancel();
+            return null;
+        }
+        return image;
+    }
+
+    /** An image shown with {@link #createProgressive}. Only used on the render thread. */
+    static class ProgressiveImage {
+        final int id;
+        private boolean cancelled;
+
+        ProgressiveImage(int id) {
+            this.id = id;
+        }
+
+        /** Skips the 2-bit refinement, call this before removing or updating the image. */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.vuzix.ultralite.LVGLImage;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Converted {@link LVGLImage}s, keyed by drawable resource and colour format, so the demos do not
+ * decode and quantise the same bitmap every time they show it.
+ *
+ * The cache is bounded by the estimated size of the converted images rather than by count, and
+ * gives memory back when the system asks for it through {@link #onTrimMemory(int)}.
+ */
+class LVGLImageCache {
+    private static final int MAX_BYTES = (int) Math.min(4 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+
+    private static class Entry {
+        final LVGLImage image;
+        final int width;
+        final int height;
+        final int bytes;
+
+        Entry(LVGLImage image, int width, int height, int bytes) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+    }
+
+    private final LruCache<Long, Entry> cache = new LruCache<Long, Entry>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(@NonNull Long key, @NonNull Entry entry) {
+            return entry.bytes;
+        }
+    };
+
+    // Sizes of the images handed out, for LinkMetrics; outlives eviction while the image is in use
+    private final Map<LVGLImage, Integer> sizes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Nullable
+    LVGLImage get(int resourceId, int colorFormat) {
+        Entry entry = cache.get(key(resourceId, colorFormat));
+        return entry != null ? entry.image : null;
+    }
+
+    /**
+     * The {width, height} of a resource that is cached in either format, so callers can choose a
+     * format without decoding it again; null if it is not cached.
+     */
+    @Nullable
+    int[] getSize(int resourceId) {
+        Entry entry = cache.get(key(resourceId, LVGLImage.CF_INDEXED_2_BIT));
+        if (entry == null) entry = cache.get(key(resourceId, LVGLImage.CF_INDEXED_1_BIT));
+        return entry != null ? new int[]{entry.width, entry.height} : null;
+    }
+
+    /** @param bytes The estimated size of the converted image */
+    void put(int resourceId, int colorFormat, @NonNull LVGLImage image, int width, int height, int bytes) {
+        cache.put(key(resourceId, colorFormat), new Entry(image, width, height, bytes));
+        sizes.put(image, bytes);
+    }
+
+    /** The estimated size of an image loaded through the cache, or 0 if it was not. */
+    int estimatedBytes(@NonNull LVGLImage image) {
+        Integer bytes = sizes.get(image);
+        return bytes != null ? bytes : 0;
+    }
+
+    /** Matches {@link ComponentCallbacks2#onTrimMemory(int)}. */
+    void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    private static long key(int resourceId, int colorFormat) {
+        return ((long) resourceId << 32) | (colorFormat & 0xFFFFFFFFL);
+    }
+}
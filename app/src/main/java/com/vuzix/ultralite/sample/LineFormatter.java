@@ -0,0 +1,138 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Formats document lines for the glasses: the line number, right-aligned to the width of the
+ * largest line number, three spaces, then the text with runs of horizontal whitespace collapsed to
+ * a single space and trimmed.
+ *
+ * The output is the same as {@code String.format("%" + digits + "d   %s", line + 1,
+ * raw.replaceAll("\\h+", " ").trim())}, but built by hand in a reused buffer, so no format string
+ * is parsed and no regex is compiled per line. An instance is not thread safe; use one per thread.
+ */
+class LineFormatter {
+    private static final int BATCH_LINES = 2048;
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static ExecutorService pool;
+
+    private final int digits;
+    private final StringBuilder sb = new StringBuilder(128);
+
+    /** @param lineCount Number of lines in the document, which sets the width of the line numbers */
+    LineFormatter(int lineCount) {
+        digits = digitCount(lineCount);
+    }
+
+    /** @param line Zero-based line number */
+    @NonNull
+    String format(int line, @NonNull CharSequence raw) {
+        sb.setLength(0);
+        int number = line + 1;
+        for (int pad = digits - digitCount(number); pad > 0; pad--) sb.append(' ');
+        sb.append(number).append("   ");
+
+        int textStart = sb.length();
+        boolean inWhitespace = false;
+        for (int i = 0, n = raw.length(); i < n; i++) {
+            char c = raw.charAt(i);
+            if (isHorizontalWhitespace(c)) {
+                if (!inWhitespace) sb.append(' ');
+                inWhitespace = true;
+            } else {
+                sb.append(c);
+                inWhitespace = false;
+            }
+        }
+
+        // Same rule as String.trim(): strip everything up to and including ' ' from both ends
+        int end = sb.length();
+        while (end > textStart && sb.charAt(end - 1) <= ' ') end--;
+        sb.setLength(end);
+        int start = textStart;
+        while (start < end && sb.charAt(start) <= ' ') start++;
+        if (start > textStart) sb.delete(textStart, start);
+        return sb.toString();
+    }
+
+    /** Receives formatted lines in document order. */
+    interface Sink {
+        void accept(int line, @NonNull String formatted) throws IOException;
+    }
+
+    /**
+     * Formats every line of a document, spreading the work over all cores in batches. Lines are
+     * handed to the sink in order on the calling thread, and only a few batches are held in memory
+     * at any time.
+     *
+     * @throws InterruptedIOException If the calling thread is interrupted
+     */
+    static void formatAll(@NonNull MarkdownDocument document, @NonNull Sink sink) throws IOException {
+        int lineCount = document.getLineCount();
+        if (lineCount <= BATCH_LINES || THREADS == 1) {
+            LineFormatter formatter = new LineFormatter(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                if ((i & 1023) == 0 && Thread.interrupted()) throw new InterruptedIOException();
+                sink.accept(i, formatter.format(i, document.getLine(i)));
+            }
+            return;
+        }
+
+        ArrayDeque<Future<String[]>> inFlight = new ArrayDeque<>();
+        int nextBatch = 0;
+        int written = 0;
+        try {
+            while (written < lineCount) {
+                // Keep every core busy, plus one batch queued so no core waits for the sink
+                while (inFlight.size() < THREADS + 1 && nextBatch < lineCount) {
+                    final int from = nextBatch;
+                    final int to = Math.min(lineCount, from + BATCH_LINES);
+                    inFlight.add(getPool().submit(() -> formatBatch(document, lineCount, from, to)));
+                    nextBatch = to;
+                }
+                for (String formatted : inFlight.remove().get()) sink.accept(written++, formatted);
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<String[]> future : inFlight) future.cancel(true);
+        }
+    }
+
+    private static String[] formatBatch(MarkdownDocument document, int lineCount, int from, int to) {
+        LineFormatter formatter = new LineFormatter(lineCount);
+        String[] formatted = new String[to - from];
+        for (int i = from; i < to; i++) formatted[i - from] = formatter.format(i, document.getLine(i));
+        return formatted;
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) pool = Executors.newFixedThreadPool(THREADS);
+        return pool;
+    }
+
+    static int digitCount(int n) {
+        int count = 1;
+        while (n >= 10) {
+            n /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    // The characters matched by the regex class \h
+    private static boolean isHorizontalWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\u00A0' || c == '\u1680' || c == '\u180E'
+                || (c >= '\u2000' && c <= '\u200A') || c == '\u202F' || c == '\u205F' || c == '\u3000';
+    }
+}
@@ -0,0 +1,97 @@
+package com.vuzix.ultralite.sample;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Compares the old per-line {@code String.format} and {@code replaceAll} loop from prepareCanvas
+ * with {@link LineFormatter}, on a generated note of {@link #LINES} lines. Started from the Settings
+ * tab in debug builds only, and slow enough that it must run off the main thread.
+ */
+class LineFormatterBenchmark {
+    static final int LINES = 50_000;
+    private static final int ROUNDS = 3;
+
+    @NonNull
+    static String run(@NonNull File cacheDir) throws IOException {
+        File file = new File(cacheDir, "benchmark.md");
+        MarkdownDocument document = createDocument(file);
+        try {
+            String[] raw = new String[LINES];
+            for (int i = 0; i < LINES; i++) raw[i] = document.getLine(i);
+
+            long legacy = Long.MAX_VALUE, sequential = Long.MAX_VALUE, parallel = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {   // Best of several rounds, the first warms up the JIT
+                long start = SystemClock.elapsedRealtimeNanos();
+                int digits = String.valueOf(raw.length).length();
+                for (int i = 0; i < raw.length; i++) {
+                    consume(String.format("%" + digits + "d   %s", i + 1, raw[i].replaceAll("\\h+", " ").trim()));
+                }
+                legacy = Math.min(legacy, SystemClock.elapsedRealtimeNanos() - start);
+
+                start = SystemClock.elapsedRealtimeNanos();
+                LineFormatter formatter = new LineFormatter(raw.length);
+                for (int i = 0; i < raw.length; i++) consume(formatter.format(i, raw[i]));
+                sequential = Math.min(sequential, SystemClock.elapsedRealtimeNanos() - start);
+
+                start = SystemClock.elapsedRealtimeNanos();
+                LineFormatter.formatAll(document, (line, formatted) -> consume(formatted));
+                parallel = Math.min(parallel, SystemClock.elapsedRealtimeNanos() - start);
+            }
+            return String.format(Locale.US,
+                    "%,d lines\nString.format + replaceAll: %d ms\nLineFormatter: %d ms (%.1fx)\nLineFormatter.formatAll: %d ms (%.1fx, incl. decoding)",
+                    LINES, legacy / 1_000_000,
+                    sequential / 1_000_000, (double) legacy / sequential,
+                    parallel / 1_000_000, (double) legacy / parallel);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private static int sink;
+
+    // Keeps the JIT from optimizing the work away
+    private static void consume(String s) {
+        sink += s.length();
+    }
+
+    // A note with a mix of headings, indented lists and tab-separated tables
+    private static MarkdownDocument createDocument(File file) throws IOException {
+        MarkdownDocument.LineIndex index = new MarkdownDocument.LineIndex();
+        int offset = 0;
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < LINES; i++) {
+                String line;
+                switch (i % 4) {
+                    case 0: line = "## Heading   number " + i; break;
+                    case 1: line = "    -   list item\twith  some   extra    spacing " + i; break;
+                    case 2: line = "| cell\t\t| cell   " + i + "\t|"; break;
+                    default: line = "Plain prose with single spaces, the common case in most notes.";
+                }
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                index.add(offset);
+                os.write(bytes);
+                offset += bytes.length;
+            }
+        }
+        index.setLength(offset);
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MarkdownDocument(Uri.fromFile(file), bytes, index);
+        }
+    }
+}
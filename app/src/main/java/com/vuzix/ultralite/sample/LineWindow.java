@@ -0,0 +1,111 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Formats the lines of an {@link EditableDocument} on demand, just before they are shown on the
+ * glasses.
+ *
+ * Nothing is formatted up front, so the first frame costs the same whatever the length of the
+ * document. Formatted lines are kept in a small LRU, and each time the window moves the next
+ * {@code lookAhead} lines in the direction of travel are formatted on a background thread, so
+ * they are usually ready by the time a scroll reaches them.
+ *
+ * When the {@link DocumentCache} has already formatted the document, lines are taken from it
+ * instead. After an edit, {@link #invalidateFrom(int)} drops the lines whose text or number changed.
+ */
+class LineWindow {
+    private static final int CACHED_LINES = 128;
+    // One shared thread is enough, only the window on the glasses is ever looked ahead of
+    private static final ExecutorService lookAheadExecutor = Executors.newSingleThreadExecutor();
+
+    private final EditableDocument document;
+    private final int visible;
+    private final int lookAhead;
+    private LineFormatter formatter;
+    private int formatterLineCount;
+    private final Map<Integer, String> formattedLines = new LinkedHashMap<Integer, String>(CACHED_LINES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHED_LINES;
+        }
+    };
+    private volatile int firstVisible;
+
+    LineWindow(@NonNull EditableDocument document, int visible, int lookAhead) {
+        this.document = document;
+        this.visible = visible;
+        this.lookAhead = Math.min(lookAhead, CACHED_LINES - visible);
+        formatterLineCount = document.getLineCount();
+        formatter = new LineFormatter(formatterLineCount);
+    }
+
+    @NonNull
+    EditableDocument getDocument() {
+        return document;
+    }
+
+    int getLineCount() {
+        return document.getLineCount();
+    }
+
+    /**
+     * Formats the visible window starting at {@code first}, if needed, and starts formatting the
+     * lines beyond it in the direction the window moved.
+     */
+    void moveTo(int first) {
+        int direction = Integer.signum(first - firstVisible);
+        firstVisible = first;
+        for (int line = first; line < first + visible; line++) get(line);
+
+        final int from = direction < 0 ? first - lookAhead : first + visible;
+        final int to = direction < 0 ? first : first + visible + lookAhead;
+        lookAheadExecutor.execute(() -> {
+            for (int line = Math.max(0, from); line < Math.min(getLineCount(), to); line++) {
+                if (firstVisible != first) return;   // Superseded by a newer move
+                get(line);
+            }
+        });
+    }
+
+    /** Returns the formatted line, or an empty string past the end of the document. */
+    @NonNull
+    synchronized String get(int line) {
+        if (line < 0 || line >= getLineCount()) return "";
+        String formatted = formattedLines.get(line);
+        if (formatted == null) {
+            formatted = document.getFormattedLine(line);
+            if (formatted == null) formatted = formatter.format(line, document.getLine(line));
+            formattedLines.put(line, formatted);
+        }
+        return formatted;
+    }
+
+    /**
+     * Forgets the formatted lines from {@code line} on, after the document was edited there. Lines
+     * further down keep their text but may have moved, so their numbers are stale too.
+     *
+     * @return true if every line was forgotten, because the line numbers got wider or narrower,
+     * so the lines above {@code line} changed as well
+     */
+    synchronized boolean invalidateFrom(int line) {
+        int lineCount = document.getLineCount();
+        boolean all = LineFormatter.digitCount(lineCount) != LineFormatter.digitCount(formatterLineCount);
+        if (all) {
+            formatter = new LineFormatter(lineCount);
+            formattedLines.clear();
+        } else {
+            for (Iterator<Integer> it = formattedLines.keySet().iterator(); it.hasNext(); ) {
+                if (it.next() >= line) it.remove();
+            }
+        }
+        formatterLineCount = lineCount;
+        return all;
+    }
+}
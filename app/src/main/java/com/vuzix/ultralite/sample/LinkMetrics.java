@@ -0,0 +1,260 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.UltraliteSDK;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records what the app sends to the glasses and how long the glasses take to confirm it.
+ *
+ * Every send path reports an estimate of the bytes it puts on the Bluetooth link, and commits and
+ * ack requests report the time from sending to the glasses' reply. The last {@link #CAPACITY}
+ * samples are kept, which is enough for percentiles and rates over the last few seconds, and can be
+ * exported as CSV to compare builds on real hardware.
+ *
+ * Byte counts are estimates of the payload only; the SDK does not report what it actually sends.
+ * The same estimates, divided by how long the glasses take to confirm the commit that follows them,
+ * give a running estimate of the link throughput for {@link ImageEncodingPolicy}.
+ *
+ * All methods are thread safe.
+ */
+class LinkMetrics {
+    static final String KIND_TEXT = "text";
+    static final String KIND_MOVE = "move";
+    static final String KIND_VISIBILITY = "visibility";
+    static final String KIND_REMOVE = "remove";
+    static final String KIND_IMAGE = "image";
+    static final String KIND_SCROLL_IMAGE = "scroll_image";
+    static final String KIND_COMMIT = "commit";
+    static final String KIND_ACK = "ack";
+
+    private static final int CAPACITY = 4096;
+    private static final long RATE_WINDOW_MS = 5000;
+    private static final int COMMAND_OVERHEAD_BYTES = 8;   // Rough size of a command header
+    private static final int MIN_THROUGHPUT_SAMPLE_BYTES = 2048;   // Smaller commits measure latency, not throughput
+    private static final double THROUGHPUT_SMOOTHING = 0.3;
+    private static final long IN_FLIGHT_STALE_MS = 5000;   // Commits never confirmed stop counting after this
+    private static final LinkMetrics instance = new LinkMetrics();
+
+    // Ring of samples, the oldest is overwritten first
+    private final long[] times = new long[CAPACITY];      // Wall clock, for the CSV
+    private final long[] uptimes = new long[CAPACITY];    // Monotonic, for rates
+    private final String[] kinds = new String[CAPACITY];
+    private final int[] bytes = new int[CAPACITY];
+    private final long[] latencies = new long[CAPACITY];  // Send to reply in ms, -1 if not measured
+    private int next;
+    private int count;
+    private long totalBytes;
+
+    // Throughput estimate
+    private long uncommittedBytes;   // Sent since the last commit
+    private final ArrayDeque<long[]> commitsInFlight = new ArrayDeque<>();   // {sent uptime, bytes}
+    private double throughput;       // Bytes per second, 0 until measured
+
+    static LinkMetrics get() {
+        return instance;
+    }
+
+    /** Records a command without a reply, such as a text update. */
+    void recordSend(@NonNull String kind, int payloadBytes) {
+        record(kind, payloadBytes + COMMAND_OVERHEAD_BYTES, -1);
+    }
+
+    void recordText(@NonNull String kind, @NonNull String text) {
+        // Text is sent as UTF-8; counting ASCII as one byte is close enough for an estimate
+        recordSend(kind, text.length());
+    }
+
+    /**
+     * Starts timing a command the glasses will confirm, such as a commit or an ack request.
+     *
+     * @param then Runs when the glasses reply, after the latency has been recorded; may be null
+     * @return The callback to hand to the SDK
+     */
+    @NonNull
+    Runnable timeReply(@NonNull String kind, Runnable then) {
+        final long sent = SystemClock.elapsedRealtime();
+        final long[] commit = KIND_COMMIT.equals(kind) ? startCommit(sent) : null;
+        return () -> {
+            long latency = SystemClock.elapsedRealtime() - sent;
+            record(kind, COMMAND_OVERHEAD_BYTES, latency);
+            if (commit != null) finishCommit(commit, latency);
+            if (then != null) then.run();
+        };
+    }
+
+    // The bytes sent since the previous commit travel with this one
+    private synchronized long[] startCommit(long sent) {
+        long[] commit = {sent, uncommittedBytes};
+        uncommittedBytes = 0;
+        commitsInFlight.add(commit);
+        return commit;
+    }
+
+    private synchronized void finishCommit(long[] commit, long latencyMs) {
+        commitsInFlight.remove(commit);
+        if (commit[1] < MIN_THROUGHPUT_SAMPLE_BYTES || latencyMs <= 0) return;
+        double sample = commit[1] * 1000.0 / latencyMs;
+        throughput = throughput == 0 ? sample : throughput + THROUGHPUT_SMOOTHING * (sample - throughput);
+    }
+
+    /**
+     * Estimated link throughput in bytes per second, measured from commits that carried enough data,
+     * or 0 if none has been confirmed yet. This includes the round trip, so it errs on the low side.
+     */
+    synchronized double getEstimatedThroughput() {
+        return throughput;
+    }
+
+    /** Bytes sent that the glasses have not confirmed yet, that is the queue ahead of a new send. */
+    synchronized long getBytesInFlight() {
+        long now = SystemClock.elapsedRealtime();
+        while (!commitsInFlight.isEmpty() && now - commitsInFlight.peekFirst()[0] > IN_FLIGHT_STALE_MS) {
+            commitsInFlight.removeFirst();
+        }
+        long inFlight = uncommittedBytes;
+        for (long[] commit : commitsInFlight) inFlight += commit[1];
+        return inFlight;
+    }
+
+    /**
+     * Records a slice sent with {@code sendScrollImage}. Slices are assumed to span the full
+     * canvas width at 2 bits per pixel, which is an upper bound.
+     */
+    void recordScrollSlice(int sliceHeight) {
+        recordSend(KIND_SCROLL_IMAGE, imageBytes(UltraliteSDK.Canvas.WIDTH, sliceHeight, LVGLImage.CF_INDEXED_2_BIT));
+    }
+
+    /** Estimated size of an image in the given colour format. */
+    static int imageBytes(int width, int height, int colorFormat) {
+        int bitsPerPixel = colorFormat == LVGLImage.CF_INDEXED_1_BIT ? 1 : 2;
+        return (width * height * bitsPerPixel + 7) / 8;
+    }
+
+    private synchronized void record(String kind, int size, long latencyMs) {
+        times[next] = System.currentTimeMillis();
+        uptimes[next] = SystemClock.elapsedRealtime();
+        kinds[next] = kind;
+        bytes[next] = size;
+        latencies[next] = latencyMs;
+        next = (next + 1) % CAPACITY;
+        count = Math.min(count + 1, CAPACITY);
+        totalBytes += size;
+        if (latencyMs < 0) uncommittedBytes += size;
+    }
+
+    /** A point-in-time summary for display. */
+    static class Snapshot {
+        long totalBytes;
+        double bytesPerSecond;
+        double commitsPerSecond;
+        int commitSamples;
+        long commitP50, commitP95, commitP99;
+        int ackSamples;
+        long ackP50, ackP95, ackP99;
+        double estimatedThroughput;
+        long bytesInFlight;
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Sent: %,d bytes (%.0f B/s)\nCommits: %.1f/s\n"
+                            + "Commit to ack (n=%d): p50 %d ms, p95 %d ms, p99 %d ms\n"
+                            + "Ack round trip (n=%d): p50 %d ms, p95 %d ms, p99 %d ms\n"
+                            + "Link estimate: %.0f B/s, %,d bytes unconfirmed",
+                    totalBytes, bytesPerSecond, commitsPerSecond,
+                    commitSamples, commitP50, commitP95, commitP99,
+                    ackSamples, ackP50, ackP95, ackP99,
+                    estimatedThroughput, bytesInFlight);
+        }
+    }
+
+    @NonNull
+    synchronized Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        s.totalBytes = totalBytes;
+        long now = SystemClock.elapsedRealtime();
+        long recentBytes = 0;
+        int recentCommits = 0;
+        long[] commitLatencies = new long[count];
+        long[] ackLatencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (now - uptimes[i] <= RATE_WINDOW_MS) {
+                recentBytes += bytes[i];
+                if (KIND_COMMIT.equals(kinds[i])) recentCommits++;
+            }
+            if (latencies[i] < 0) continue;
+            if (KIND_COMMIT.equals(kinds[i])) commitLatencies[s.commitSamples++] = latencies[i];
+            else if (KIND_ACK.equals(kinds[i])) ackLatencies[s.ackSamples++] = latencies[i];
+        }
+        s.bytesPerSecond = recentBytes * 1000.0 / RATE_WINDOW_MS;
+        s.commitsPerSecond = recentCommits * 1000.0 / RATE_WINDOW_MS;
+
+        Arrays.sort(commitLatencies, 0, s.commitSamples);
+        s.commitP50 = percentile(commitLatencies, s.commitSamples, 50);
+        s.commitP95 = percentile(commitLatencies, s.commitSamples, 95);
+        s.commitP99 = percentile(commitLatencies, s.commitSamples, 99);
+        Arrays.sort(ackLatencies, 0, s.ackSamples);
+        s.ackP50 = percentile(ackLatencies, s.ackSamples, 50);
+        s.ackP95 = percentile(ackLatencies, s.ackSamples, 95);
+        s.ackP99 = percentile(ackLatencies, s.ackSamples, 99);
+        s.estimatedThroughput = throughput;
+        s.bytesInFlight = getBytesInFlight();
+        return s;
+    }
+
+    /**
+     * Average bytes per second over the recent window. This counts what was sent, so it only
+     * approaches the link throughput while the app is actually sending.
+     */
+    double getRecentBytesPerSecond() {
+        return snapshot().bytesPerSecond;
+    }
+
+    // Nearest-rank percentile of the first n sorted values
+    private static long percentile(long[] sorted, int n, int p) {
+        if (n == 0) return 0;
+        int rank = (int) Math.ceil(p / 100.0 * n);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /** Writes the retained samples, oldest first. */
+    void exportCsv(@NonNull Writer out) throws IOException {
+        long[] t, l;
+        String[] k;
+        int[] b;
+        int n, start;
+        synchronized (this) {
+            t = times.clone();
+            l = latencies.clone();
+            k = kinds.clone();
+            b = bytes.clone();
+            n = count;
+            start = count < CAPACITY ? 0 : next;
+        }
+        out.write("time_ms,kind,bytes,latency_ms\n");
+        for (int i = 0; i < n; i++) {
+            int j = (start + i) % CAPACITY;
+            out.write(t[j] + "," + k[j] + "," + b[j] + "," + (l[j] >= 0 ? String.valueOf(l[j]) : "") + "\n");
+        }
+    }
+
+    synchronized void reset() {
+        next = 0;
+        count = 0;
+        totalBytes = 0;
+        uncommittedBytes = 0;
+        commitsInFlight.clear();
+        throughput = 0;
+    }
+}
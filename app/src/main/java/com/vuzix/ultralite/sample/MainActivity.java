@@ -1,11 +1,19 @@
 package com.vuzix.ultralite.sample;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.io.IOException;
 
 // AndroidX and Material Design Imports
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -77,29 +85,74 @@ public class MainActivity extends AppCompatActivity {
 
         private final UltraliteSDK ultralite;
         private final MutableLiveData<Boolean> running = new MutableLiveData<>(false); // Default to false
-        private boolean haveControlOfGlasses = false;
-        private String pendingTextToDisplay = null;
+        private volatile boolean haveControlOfGlasses = false;
+        private boolean releasingControl;   // Main thread only; set while we give up control on purpose
+        // Requests made before we had control, run together once it is granted
+        private static final int MAX_PENDING_OPERATIONS = 8;
+        private static final String PENDING_TEXT = "text";
+        private static final String PENDING_DOCUMENT = "document";
+        private static final String PENDING_IMAGE = "image";
+        private static final String PENDING_PICTURE = "picture";
+        private final PendingOperationQueue pendingOperations = new PendingOperationQueue(MAX_PENDING_OPERATIONS);
         private volatile LiveText activeLiveText;
-        private List<String> cachedLines = new ArrayList<>();
+        // Text from other processes, shown with LiveText on the SCROLL layout
+        private final TextSocketServer textSocketServer = new TextSocketServer();
+        private static final String PENDING_SOCKET_TEXT = "socket_text";
+        private static final long SOCKET_FRAME_MS = 100;
+        private CaptionStream socketCaptions;          // Render thread only, like the fields below
+        private AckWaiter socketAckWaiter;
+        private CompletableFuture<Void> socketFrameAck;
+        // Scrolls the loaded document on the SCROLL layout
+        private static final String PENDING_TELEPROMPTER = "teleprompter";
+        private Teleprompter teleprompter;             // Render thread only
+        private final MutableLiveData<Boolean> teleprompterRunning = new MutableLiveData<>(false);
+        // Owns every Canvas call. The canvas fields below are only touched on this thread.
+        private final RenderThread renderThread = new RenderThread();
+        // Latest-wins queue for text display requests, runs on the render thread
+        private final DisplayJobScheduler displayJobs = new DisplayJobScheduler(renderThread);
+        private LineWindow lineWindow;
         private int currentStartLine = 0;
         private final int numVisible = 8;
+        private static final int LOOK_AHEAD_LINES = 16;
         private static final int LINE_HEIGHT_PX = 30;
         private Canvas canvas;
-        private final List<Integer> canvasTextIds = new ArrayList<>();
+        private CanvasTransaction canvasTransaction;
+        private CanvasTextRing textRing;
+        private static final int MAX_COMMITS_IN_FLIGHT = 2;
+        private final ScrollScheduler scrollScheduler = new ScrollScheduler(
+                renderThread.getHandler(), MAX_COMMITS_IN_FLIGHT, this::renderScroll);
         private boolean canvasMode = false;
+        // What the canvas background shows, so new frames only send the tiles that changed. Created
+        // with the first frame, its buffers take 1.8 MB.
+        private BackgroundMirror backgroundMirror;
+        private ImageEncodingPolicy.ProgressiveImage shownImage;   // Render thread only
+        private int shownTextId = -1;   // Text shown by DemoCanvasLayout.runText, render thread only
+        // Newest frame not drawn yet; older ones are skipped
+        private final AtomicReference<Bitmap> pendingBackgroundFrame = new AtomicReference<>();
+
+        private final MarkdownLoader markdownLoader;
+        private Uri markdownUri;
+        private final MutableLiveData<EditableDocument> markdownDocument = new MutableLiveData<>(null);
+        // Saves edits of the loaded document back to its URI
+        private final DocumentWriter documentWriter;
+        // Notices when another app changes the loaded document
+        private final DocumentWatcher documentWatcher;
+        private final MutableLiveData<List<String>> markdownFirstLines = new MutableLiveData<>(Collections.emptyList());
+        private final MutableLiveData<Integer> markdownLoadProgress = new MutableLiveData<>(-1); // -1 when idle
+        private final MutableLiveData<String> markdownLoadMessage = new MutableLiveData<>(null);
 
         private final Observer<Boolean> controlledObserver = controlled -> {
             Log.d(VM_TAG, "Controlled by me: " + controlled);
             haveControlOfGlasses = controlled;
-            if (controlled && pendingTextToDisplay != null) {
-                // If we gained control and had pending text, try sending it
-                // Decide which method to call based on the original intent
-                // For simplicity, let's assume it was for startDisplayFullText
-                startDisplayFullText(pendingTextToDisplay); // Or handle based on type of pending action
-                pendingTextToDisplay = null;
-            } else if (!controlled) {
-                // Lost control, maybe clear pending text or show a message
-                // pendingTextToDisplay = null; // Clearing if control is lost
+            // Another app may draw while we do not have control; put our screen back when we get it
+            // back, unless we let go of it ourselves
+            if (controlled) {
+                renderThread.post(this::restoreCanvas);
+                // Replays whatever was asked for while we waited, in the order it was asked for
+                for (Runnable operation : pendingOperations.drain()) operation.run();
+            } else {
+                renderThread.post(releasingControl ? this::discardCanvas : this::suspendCanvas);
+                releasingControl = false;
                 running.postValue(false); // Stop any running indication
             }
         };
@@ -108,12 +161,182 @@ public class MainActivity extends AppCompatActivity {
             super(application);
             ultralite = UltraliteSDK.get(application);
             ultralite.getControlledByMe().observeForever(controlledObserver);
+            markdownLoader = new MarkdownLoader(application.getContentResolver(), application.getCacheDir());
+            documentWriter = new DocumentWriter(application.getContentResolver(), application.getCacheDir(),
+                    new DocumentWriter.Listener() {
+                        @Override public void onSaved(@NonNull EditableDocument document, int version) {
+                            documentWatcher.rebaseline(document);   // Our own change
+                        }
+
+                        @Override public void onError(@NonNull EditableDocument document, @NonNull Exception e) {
+                            markdownLoadMessage.setValue("Could not save the note: "
+                                    + (e.getMessage() != null ? e.getMessage() : e));
+                        }
+                    });
+            documentWatcher = new DocumentWatcher(application.getContentResolver(), this::reloadChangedDocument);
+            sliceCache.attachDisk(application.getCacheDir());
+            application.registerComponentCallbacks(memoryCallbacks);
+            warmUpImages(application);
+        }
+
+        private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+            @Override public void onTrimMemory(int level) {
+                imageCache.onTrimMemory(level);
+                sliceCache.onTrimMemory(level);
+            }
+
+            @Override public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override public void onLowMemory() {
+                imageCache.onTrimMemory(TRIM_MEMORY_COMPLETE);
+                sliceCache.onTrimMemory(TRIM_MEMORY_COMPLETE);
+            }
+        };
+
+        // Converts the images the demos use most in both depths, so they are ready when needed
+        private static void warmUpImages(@NonNull Context context) {
+            new Thread(() -> {
+                for (int resourceId : WARM_UP_IMAGES) {
+                    loadLVGLImage(context, resourceId, true);
+                    loadLVGLImage(context, resourceId, false);
+                }
+            }, "LVGLImageWarmUp").start();
         }
 
         public LiveData<Boolean> getRunning() {
             return running;
         }
 
+        /** The loaded document, or null while nothing is loaded. */
+        public LiveData<EditableDocument> getMarkdownDocument() {
+            return markdownDocument;
+        }
+
+        public LiveData<List<String>> getMarkdownFirstLines() {
+            return markdownFirstLines;
+        }
+
+        /** Load progress in percent, or -1 when no load is running. 0 is reported while the size is unknown. */
+        public LiveData<Integer> getMarkdownLoadProgress() {
+            return markdownLoadProgress;
+        }
+
+        /** One-shot message for the user about the last load, cleared with {@link #clearMarkdownLoadMessage()}. */
+        public LiveData<String> getMarkdownLoadMessage() {
+            return markdownLoadMessage;
+        }
+
+        public void clearMarkdownLoadMessage() {
+            markdownLoadMessage.setValue(null);
+        }
+
+        /**
+         * Loads a Markdown document in the background. The results are published through
+         * {@link #getMarkdownFirstLines()}, {@link #getMarkdownLoadProgress()} and
+         * {@link #getMarkdownDocument()}.
+         *
+         * Since the ViewModel outlives the fragments, asking again for the document that is already
+         * loaded (or loading) does nothing unless {@code force} is set. Must be called on the main thread.
+         */
+        public void loadMarkdown(@NonNull Uri uri, boolean force) {
+            if (!force && uri.equals(markdownUri)) return;
+            markdownUri = uri;
+            markdownDocument.setValue(null);
+            markdownFirstLines.setValue(Collections.emptyList());
+            markdownLoadProgress.setValue(0);
+            markdownLoader.load(uri, new MarkdownLoader.Listener() {
+                @Override public void onFirstLines(@NonNull List<String> lines) {
+                    markdownFirstLines.setValue(lines);
+                }
+
+                @Override public void onProgress(long bytesRead, long totalBytes) {
+                    if (totalBytes > 0) {
+                        markdownLoadProgress.setValue((int) Math.min(100, bytesRead * 100 / totalBytes));
+                    }
+                }
+
+                @Override public void onLoaded(@NonNull MarkdownDocument document) {
+                    EditableDocument editable = new EditableDocument(document);
+                    markdownDocument.setValue(editable);
+                    documentWatcher.watch(editable);
+                    markdownLoadProgress.setValue(-1);
+                    if (document.getLength() == 0) markdownLoadMessage.setValue("Selected file is empty.");
+                }
+
+                @Override public void onError(@NonNull Exception e) {
+                    markdownUri = null; // Allow a retry
+                    markdownLoadProgress.setValue(-1);
+                    markdownLoadMessage.setValue("Error reading file: " + (e.getMessage() != null ? e.getMessage() : e));
+                }
+            });
+        }
+
+        /*
+         * Reads the document again after another app changed it, and updates only the lines on the
+         * glasses that changed. Skipped while a load is running; if the document is edited before
+         * the new version is read, the edits are saved over it.
+         */
+        private void reloadChangedDocument(@NonNull EditableDocument stale) {
+            Integer loading = markdownLoadProgress.getValue();
+            if (markdownDocument.getValue() != stale || (loading != null && loading >= 0)) return;
+            markdownLoader.load(stale.getUri(), new MarkdownLoader.Listener() {
+                @Override public void onFirstLines(@NonNull List<String> lines) {
+                }
+
+                @Override public void onProgress(long bytesRead, long totalBytes) {
+                }
+
+                @Override public void onLoaded(@NonNull MarkdownDocument document) {
+                    applyExternalChange(stale, new EditableDocument(document));
+                }
+
+                @Override public void onError(@NonNull Exception e) {
+                    Log.w(VM_TAG, "Could not read the changed document", e);
+                }
+            });
+        }
+
+        private void applyExternalChange(@NonNull EditableDocument stale, @NonNull EditableDocument fresh) {
+            if (markdownDocument.getValue() != stale || stale.hasUnsavedEdits()) return;
+            markdownDocument.setValue(fresh);
+            documentWatcher.watch(fresh);
+            List<String> firstLines = new ArrayList<>();
+            for (int i = 0; i < Math.min(MarkdownLoader.FIRST_SCREEN_LINES, fresh.getLineCount()); i++) {
+                firstLines.add(fresh.getLine(i));
+            }
+            markdownFirstLines.setValue(firstLines);
+            renderThread.post(() -> applyExternalChangeOnRenderThread(stale, fresh));
+        }
+
+        /*
+         * Shows the new version in the same text objects, sending only the visible rows that changed.
+         * The rows are compared with the text the ring holds, which is what the glasses show, rather
+         * than with the stale document.
+         */
+        private void applyExternalChangeOnRenderThread(@NonNull EditableDocument stale, @NonNull EditableDocument fresh) {
+            if(!canvasMode || lineWindow==null || lineWindow.getDocument()!=stale) return;
+            lineWindow = new LineWindow(fresh, numVisible, LOOK_AHEAD_LINES);
+            int updated = textRing.refresh(lineWindow);
+            canvasTransaction.commit();
+            Log.i(VM_TAG,"Applied external change, "+updated+" rows updated");
+        }
+
+        /**
+         * Gives up control of the glasses on purpose, as the Clear buttons do. Unlike losing control
+         * to another app, nothing is put back when control is granted again, and requests still
+         * waiting for control are dropped.
+         */
+        public void releaseControl() {
+            pendingOperations.clear();
+            if (haveControlOfGlasses) {
+                releasingControl = true;
+            } else {
+                renderThread.post(this::discardCanvas);
+            }
+            ultralite.releaseControl();
+        }
+
         private boolean requestControlIfNeeded() {
             if (!haveControlOfGlasses) {
                 Log.d(VM_TAG, "Requesting control of glasses...");
@@ -132,20 +355,41 @@ public class MainActivity extends AppCompatActivity {
         public void displayTextOnGlasses(String userMessage) {
             if (userMessage == null || userMessage.isEmpty()) return;
 
-            if (requestControlIfNeeded() && haveControlOfGlasses) { // Check if control was already held or immediately granted (less likely for first request)
+            if (requestControlIfNeeded()) {
                 startDisplayFullText(userMessage);
             } else {
                 Log.d(VM_TAG, "Control not available, queuing text: " + userMessage);
-                pendingTextToDisplay = userMessage; // Store for when control is gained
-                // If not already requesting, requestControlIfNeeded() above would have initiated it.
+                // Replaces any text still waiting; requestControlIfNeeded() has asked for control
+                pendingOperations.enqueue(PENDING_TEXT, () -> startDisplayFullText(userMessage));
             }
         }
 
+        /** Display text requests still running or waiting, see {@link DisplayJobScheduler}. */
+        public int getDisplayQueueDepth() {
+            return displayJobs.getQueueDepth();
+        }
+
+        /** Requests waiting for control of the glasses, see {@link PendingOperationQueue}. */
+        public int getPendingOperationCount() {
+            return pendingOperations.getDepth();
+        }
+
+        /** Requests that were superseded or pushed out while waiting for control. */
+        public int getPendingDroppedCount() {
+            return pendingOperations.getDroppedCount();
+        }
+
+        /** Display text requests that were superseded by a newer one, before or while running. */
+        public int getDisplayDroppedCount() {
+            return displayJobs.getDroppedCount() + displayJobs.getCancelledCount();
+        }
+
         private void startDisplayFullText(String textToDisplayOnGlasses) {
-            new Thread(() -> {
+            // A newer request supersedes this one, whether it is still waiting or already running
+            displayJobs.submit(signal -> {
                 if (!haveControlOfGlasses) { // Double check control before lengthy operation
                     Log.w(VM_TAG, "Lost control before starting displayFullText for: " + textToDisplayOnGlasses);
-                    pendingTextToDisplay = textToDisplayOnGlasses; // Re-queue if control lost
+                    pendingOperations.enqueue(PENDING_TEXT, () -> startDisplayFullText(textToDisplayOnGlasses)); // Re-queue if control lost
                     ultralite.requestControl(); // Attempt to regain control
                     return;
                 }
@@ -156,6 +400,10 @@ public class MainActivity extends AppCompatActivity {
                     // Assuming DemoCanvasLayout needs the ViewModel instance for context or methods
                     DemoCanvasLayout.runText(getApplication(), this, ultralite, textToDisplayOnGlasses);
                 } catch (Stop stop) {
+                    if (signal.isCanceled()) {
+                        Log.d(VM_TAG, "displayFullText superseded by a newer request");
+                        return;
+                    }
                     Log.e(VM_TAG, "Stop signal received during displayFullText. Error: " + stop.isError());
                     if (ultralite != null) {
                         if (stop.isError()) {
@@ -172,72 +420,66 @@ public class MainActivity extends AppCompatActivity {
                 } finally {
                     running.postValue(false);
                 }
-            }).start();
+            });
         }
 
 
         /**
-         * Displays a large block of scrollable text on the glasses using LiveText.
+         * Displays a document on the glasses as a canvas of numbered lines that can be scrolled
+         * with {@link #scrollLines(int)}.
          */
-        public void displayScrollableTextOnGlasses(@NonNull String fullText) {
-            if(fullText.isEmpty()) return;
+        public void displayScrollableTextOnGlasses(@NonNull EditableDocument document) {
+            if(document.getLineCount() == 0) return;
             if(!requestControlIfNeeded()) {    // ask Bluetooth chip for control
-                Log.w(VM_TAG,"Control not yet granted – user must retry");
+                // Runs once control is granted, unless another document is shown before that
+                Log.d(VM_TAG,"Control not available, queuing document");
+                pendingOperations.enqueue(PENDING_DOCUMENT, () -> displayScrollableTextOnGlasses(document));
                 return;
             }
-            // Wait until we really have control
-            if(!haveControlOfGlasses) {
-                ultralite.getControlledByMe().observeForever(new Observer<Boolean>() {
-                    @Override public void onChanged(Boolean b) {
-                        if(Boolean.TRUE.equals(b)) {
-                            ultralite.getControlledByMe().removeObserver(this);
-                            displayScrollableTextOnGlasses(fullText);  // recurse now that control is ours
-                        }
-                    }
-                });
+            // We own the glasses – build the canvas on the render thread
+            renderThread.post(() -> prepareCanvas(document));
+        }
+
+        /**
+         * Shows an image resource alone on a canvas, in the format {@link #imagePolicy} picks: 1-bit
+         * first, refined to 2-bit if the link has room for it.
+         */
+        public void displayImageOnGlasses(int resourceId) {
+            if (!requestControlIfNeeded()) {
+                pendingOperations.enqueue(PENDING_IMAGE, () -> displayImageOnGlasses(resourceId));
                 return;
             }
-            // We own the glasses – build the canvas on the UI thread
-            new Handler(Looper.getMainLooper()).post(() -> prepareCanvas(fullText));
+            renderThread.post(() -> {
+                clearForCanvas();
+                ultralite.setLayout(Layout.CANVAS, /*timeout*/0, true, true, 0);
+                shownImage = imagePolicy.createProgressive(getApplication(), getCanvasTransaction(),
+                        renderThread.getHandler(), resourceId, Anchor.CENTER);
+                if (shownImage == null) Log.e(VM_TAG, "Could not show image " + resourceId);
+            });
         }
 
-        /* ========== 2.  Canvas builder – runs on UI thread ========== */
-        private void prepareCanvas(@NonNull String src) {
+        /* ========== 2.  Canvas builder – runs on the render thread ========== */
+        private void prepareCanvas(@NonNull EditableDocument document) {
             try {
+                stopSocketText();
+                stopTeleprompterOnRenderThread();
                 ultralite.setLayout(Layout.CANVAS, /*timeout*/0, true, true, 0);
-                canvas      = ultralite.getCanvas();
+                discardCanvas();   // The new layout starts empty
+                canvas      = getCanvasTransaction().getCanvas();
                 canvasMode  = true;
                 canvas.clearBackground(UltraliteColor.BLACK);
 
-                // ---------- format lines ----------
-                String[] raw = src.split("\\r?\\n");
-                int digits   = String.valueOf(raw.length).length();
-                cachedLines  = new ArrayList<>(raw.length);
-                for(int i=0;i<raw.length;i++)
-                    cachedLines.add(String.format("%"+digits+"d   %s", i+1,
-                            raw[i].replaceAll("\\h+", " ").trim()));
+                // ---------- only the lines about to be shown are formatted ----------
+                lineWindow  = new LineWindow(document, numVisible, LOOK_AHEAD_LINES);
 
                 // ---------- draw first window ----------
-                canvasTextIds.clear();
                 currentStartLine = 0;
-                int y            = 0;
-                int winMax       = Math.min(numVisible, cachedLines.size());
-
-                for(int i=0;i<winMax;i++, y+=LINE_HEIGHT_PX) {
-                    int id = canvas.createText(
-                            cachedLines.get(i),
-                            TextAlignment.LEFT,
-                            UltraliteColor.WHITE,
-                            Anchor.TOP_LEFT,
-                            0, y,
-                            Canvas.WIDTH,
-                            LINE_HEIGHT_PX,
-                            TextWrapMode.CLIP,
-                            /*visible*/true);
-                    canvasTextIds.add(id);
-                }
-                canvas.commit(null);
-                Log.i(VM_TAG,"Canvas initialised with "+winMax+" lines");
+                // Every row gets a text object, blank past the end, so lines added later show up
+                textRing         = new CanvasTextRing(canvasTransaction, numVisible, LINE_HEIGHT_PX);
+                textRing.create(lineWindow);
+                scrollScheduler.reset(0);
+                if(!canvasTransaction.commit()) Log.e(VM_TAG,"Canvas ran out of text objects");
+                Log.i(VM_TAG,"Canvas initialised with "+lineWindow.getLineCount()+" lines");
             } catch(Exception e) {
                 Log.e(VM_TAG,"prepareCanvas failed",e);
                 canvasMode=false;
@@ -247,29 +489,309 @@ public class MainActivity extends AppCompatActivity {
 
         /* ========== 3.  Smooth line-by-line scroll & edit ========== */
         public void scrollLines(int delta) {
+            renderThread.post(() -> scrollLinesOnRenderThread(delta));
+        }
+
+        private void scrollLinesOnRenderThread(int delta) {
             if(!canvasMode || canvas==null) return;
+            // Scroll events are only accumulated here; the scheduler commits the latest position
+            // once the glasses have caught up with the previous commits
             int newStart = Math.max(0,
-                    Math.min(currentStartLine + delta, cachedLines.size() - numVisible));
-            if(newStart == currentStartLine) return;   // reached top/bottom
-            currentStartLine = newStart;
-
-            for(int i=0;i<canvasTextIds.size();i++) {
-                int idx  = currentStartLine + i;
-                String s = idx < cachedLines.size() ? cachedLines.get(idx) : "";
-                canvas.updateText(canvasTextIds.get(i), s);
+                    Math.min(scrollScheduler.getTarget() + delta, lineWindow.getLineCount() - numVisible));
+            scrollScheduler.scrollTo(newStart);
+        }
+
+        private void renderScroll(int firstLine, @NonNull Runnable onCommitted) {
+            currentStartLine = firstLine;
+            // Reuses the text IDs that scrolled off and only sends the lines that scrolled on
+            textRing.scrollTo(currentStartLine, lineWindow);
+            canvasTransaction.commit(onCommitted);
+        }
+
+        /**
+         * Shows a full-screen picture on the canvas background, behind the note if one is shown.
+         * @param resourceId A {@link BackgroundMirror#WIDTH} by {@link BackgroundMirror#HEIGHT} bitmap
+         */
+        public void displayPictureOnGlasses(int resourceId) {
+            if (!requestControlIfNeeded()) {
+                pendingOperations.enqueue(PENDING_PICTURE, () -> displayPictureOnGlasses(resourceId));
+                return;
+            }
+            renderThread.post(() -> {
+                Bitmap picture = decodeBitmap(getApplication(), resourceId);
+                if (picture != null) drawBackgroundFrame(picture);
+            });
+        }
+
+        /**
+         * Shows a full-screen frame on the canvas background, sending only the tiles that differ from
+         * the previous frame. Frames that arrive faster than they can be sent are skipped. Without a
+         * note on the glasses the frame goes on an empty canvas. Call with control of the glasses.
+         */
+        public void drawBackgroundFrame(@NonNull Bitmap frame) {
+            if (pendingBackgroundFrame.getAndSet(frame) == null) {
+                renderThread.post(this::drawPendingBackgroundFrame);
+            }
+        }
+
+        private void drawPendingBackgroundFrame() {
+            Bitmap frame = pendingBackgroundFrame.getAndSet(null);
+            if (frame == null) return;
+            if (backgroundMirror == null) {
+                boolean onNote = canvasMode;
+                if (!onNote) {
+                    clearForCanvas();   // Also forgets an image shown alone, which the new layout wipes
+                    ultralite.setLayout(Layout.CANVAS, /*timeout*/0, true, true, 0);
+                }
+                backgroundMirror = new BackgroundMirror(getCanvasTransaction().getCanvas());
+                if (!onNote) backgroundMirror.invalidate();   // Whatever was there, the first frame covers it
+            }
+            if (backgroundMirror.update(frame) > 0) canvasTransaction.commit();
+        }
+
+        // Forgets the canvas, for when the glasses will not show it again
+        private void discardCanvas() {
+            if (shownImage != null) shownImage.cancel();
+            shownImage = null;
+            shownTextId = -1;
+            canvasMode = false;
+            if (canvasTransaction != null) canvasTransaction.reset();
+            backgroundMirror = null;
+        }
+
+        private void suspendCanvas() {
+            if (canvasTransaction != null) canvasTransaction.suspend();
+            if (backgroundMirror != null) backgroundMirror.invalidate();
+        }
+
+        // Recreates the last screen after regaining control: the socket captions if they are on,
+        // otherwise the canvas, scroll position included, from what the transaction recorded
+        private void restoreCanvas() {
+            if (socketCaptions != null) {
+                restoreSocketText();
+                return;
+            }
+            if (canvasTransaction == null || !canvasTransaction.isSuspended()) return;
+            if (teleprompter != null) return;   // The SCROLL layout is in use
+            ultralite.setLayout(Layout.CANVAS, /*timeout*/0, true, true, 0);
+            canvasTransaction.replay();
+            if (backgroundMirror != null) backgroundMirror.restore();
+            if (!canvasTransaction.commit()) Log.e(VM_TAG, "Canvas ran out of objects while restoring");
+            Log.i(VM_TAG, "Canvas restored after regaining control");
+        }
+
+        /**
+         * Starts or stops showing text written to {@link TextSocketServer#SOCKET_NAME} by other
+         * processes on the phone.
+         *
+         * @return False if the socket could not be opened
+         */
+        public boolean setSocketTextEnabled(boolean enabled) {
+            if (!enabled) {
+                textSocketServer.stop();
+                renderThread.post(this::stopSocketText);
+                return true;
+            }
+            try {
+                textSocketServer.start();
+            } catch (IOException e) {
+                Log.e(VM_TAG, "Could not open the text socket", e);
+                return false;
+            }
+            if (requestControlIfNeeded()) {
+                renderThread.post(this::startSocketText);
+            } else {
+                pendingOperations.enqueue(PENDING_SOCKET_TEXT, () -> renderThread.post(this::startSocketText));
+            }
+            return true;
+        }
+
+        public boolean isSocketTextEnabled() {
+            return textSocketServer.isRunning();
+        }
+
+        /** Characters received on the text socket since it was opened. */
+        public long getSocketReceivedChars() {
+            return textSocketServer.getReceivedChars();
+        }
+
+        private void startSocketText() {
+            if (socketCaptions != null || !textSocketServer.isRunning()) return;
+            stopTeleprompterOnRenderThread();
+            discardCanvas();   // The canvas is gone
+            ultralite.setLayout(Layout.SCROLL, /*timeout*/0, true, true, 0);
+            activeLiveText = newSocketLiveText();
+            socketCaptions = new CaptionStream(activeLiveText, CaptionStream.DEFAULT_WINDOW_CHARS);
+            socketAckWaiter = new AckWaiter(ultralite);
+            renderThread.getHandler().postDelayed(socketFrame, SOCKET_FRAME_MS);
+        }
+
+        // Another app had the glasses meanwhile; put the SCROLL layout and the caption window back
+        private void restoreSocketText() {
+            ultralite.setLayout(Layout.SCROLL, /*timeout*/0, true, true, 0);
+            activeLiveText = newSocketLiveText();
+            socketCaptions.attach(activeLiveText);
+            socketFrameAck = null;   // Asked for on the layout that was lost, it may never come
+            Log.i(VM_TAG, "Socket text restored after regaining control");
+        }
+
+        // The same geometry as DemoScrollLiveText: three 48 pixel lines, one line up from the bottom
+        private LiveText newSocketLiveText() {
+            return new LiveText(ultralite, 48, Canvas.WIDTH, 1, 3, null);
+        }
+
+        private void stopSocketText() {
+            renderThread.getHandler().removeCallbacks(socketFrame);
+            socketCaptions = null;
+            socketAckWaiter = null;
+            socketFrameAck = null;
+            activeLiveText = null;
+        }
+
+        // Sends what arrived on the socket once per frame, but only once the glasses have acknowledged
+        // the previous frame. Until then the text stays in the server, which makes the producer wait.
+        private final Runnable socketFrame = new Runnable() {
+            @Override
+            public void run() {
+                if (socketCaptions == null) return;
+                renderThread.getHandler().postDelayed(this, SOCKET_FRAME_MS);
+                if (!haveControlOfGlasses || (socketFrameAck != null && !socketFrameAck.isDone())) return;
+                String text = textSocketServer.takeText();
+                if (text.isEmpty()) return;
+                socketCaptions.append(text);
+                try {
+                    socketFrameAck = socketAckWaiter.requestAck("socket text");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        /**
+         * Scrolls a document across the glasses like a teleprompter, one line every {@code durationMs}.
+         * Replaces whatever the glasses were showing.
+         */
+        public void startTeleprompter(@NonNull EditableDocument document, int durationMs) {
+            if (document.getLineCount() == 0) return;
+            if (!requestControlIfNeeded()) {
+                pendingOperations.enqueue(PENDING_TELEPROMPTER, () -> startTeleprompter(document, durationMs));
+                return;
             }
-            canvas.commit(null);
+            teleprompterRunning.setValue(true);
+            renderThread.post(() -> {
+                stopSocketText();
+                stopTeleprompterOnRenderThread();
+                discardCanvas();   // The canvas is gone
+                // A stopped teleprompter never calls back, so this is always the current one
+                teleprompter = new Teleprompter(ultralite, renderThread.getHandler(), document, () -> {
+                    teleprompter = null;
+                    teleprompterRunning.postValue(false);
+                });
+                teleprompter.setDuration(durationMs);
+                teleprompter.start();
+            });
+        }
+
+        /** Changes the teleprompter speed while it runs. */
+        public void setTeleprompterDuration(int durationMs) {
+            renderThread.post(() -> {
+                if (teleprompter != null) teleprompter.setDuration(durationMs);
+            });
+        }
+
+        public void stopTeleprompter() {
+            renderThread.post(this::stopTeleprompterOnRenderThread);
+        }
+
+        @NonNull
+        public LiveData<Boolean> isTeleprompterRunning() {
+            return teleprompterRunning;
         }
 
-        /* Call this whenever phone-side editor mutates a single line: */
+        private void stopTeleprompterOnRenderThread() {
+            if (teleprompter == null) return;
+            teleprompter.stop();
+            teleprompter = null;
+            teleprompterRunning.postValue(false);
+        }
+
+        /**
+         * Stops whatever is feeding the glasses and forgets the canvas, before a new layout replaces
+         * it. Render thread only.
+         */
+        void clearForCanvas() {
+            stopSocketText();
+            stopTeleprompterOnRenderThread();
+            discardCanvas();
+        }
+
+        /**
+         * The transaction ID of the text shown by {@link DemoCanvasLayout#runText}, or -1. Kept here
+         * so it is forgotten whenever the transaction is reset. Render thread only.
+         */
+        int getShownTextId() {
+            return shownTextId;
+        }
+
+        void setShownTextId(int id) {
+            shownTextId = id;
+        }
+
+        /**
+         * The canvas with its text, image and animation changes batched until commit.
+         * Only for use on the render thread.
+         */
+        @NonNull
+        CanvasTransaction getCanvasTransaction() {
+            if (canvasTransaction == null) canvasTransaction = new CanvasTransaction(ultralite.getCanvas());
+            return canvasTransaction;
+        }
+
+        /*
+         * Call these whenever the phone-side editor changes the loaded document. The edit is saved
+         * to the file shortly after, together with any others made meanwhile, and the lines it
+         * changed on the glasses are updated. Main thread only.
+         */
         public void replaceLine(int zeroBasedIndex, @NonNull String newContent) {
-            if(zeroBasedIndex<0 || zeroBasedIndex>=cachedLines.size()) return;
-            cachedLines.set(zeroBasedIndex, newContent);
-            int relative = zeroBasedIndex - currentStartLine;   // is it visible?
-            if(relative>=0 && relative<canvasTextIds.size()) {
-                canvas.updateText(canvasTextIds.get(relative), newContent);
-                canvas.commit(null);
+            EditableDocument document = markdownDocument.getValue();
+            if(document==null || zeroBasedIndex<0 || zeroBasedIndex>=document.getLineCount()) return;
+            document.replaceLine(zeroBasedIndex, newContent);
+            onDocumentEdited(document, zeroBasedIndex);
+        }
+
+        public void insertLine(int zeroBasedIndex, @NonNull String content) {
+            EditableDocument document = markdownDocument.getValue();
+            if(document==null || zeroBasedIndex<0 || zeroBasedIndex>document.getLineCount()) return;
+            document.insertLine(zeroBasedIndex, content);
+            onDocumentEdited(document, zeroBasedIndex);
+        }
+
+        public void deleteLine(int zeroBasedIndex) {
+            EditableDocument document = markdownDocument.getValue();
+            if(document==null || zeroBasedIndex<0 || zeroBasedIndex>=document.getLineCount()) return;
+            document.deleteLine(zeroBasedIndex);
+            onDocumentEdited(document, zeroBasedIndex);
+        }
+
+        private void onDocumentEdited(@NonNull EditableDocument document, int fromLine) {
+            documentWriter.markDirty(document);
+            renderThread.post(() -> refreshLinesOnRenderThread(document, fromLine));
+        }
+
+        // Sends the visible lines from fromLine on again; the transaction drops those that did not change
+        private void refreshLinesOnRenderThread(@NonNull EditableDocument document, int fromLine) {
+            if(!canvasMode || lineWindow==null || lineWindow.getDocument()!=document) return;
+            if (lineWindow.invalidateFrom(fromLine)) {
+                // The line numbers changed width, so the rows above the edit are padded differently too
+                textRing.refresh(lineWindow);
+                canvasTransaction.commit();
+                return;
+            }
+            int first = Math.max(fromLine, currentStartLine);
+            for(int line=first; line<currentStartLine+textRing.getRows(); line++) {
+                textRing.updateLine(line, lineWindow.get(line));
             }
+            canvasTransaction.commit();
         }
 
 
@@ -281,7 +803,10 @@ public class MainActivity extends AppCompatActivity {
          */
         public void pause(long ms) throws Stop {
             try {
-                Thread.sleep(ms); // Use Thread.sleep for background thread pauses
+                // Sleeps like Thread.sleep, but wakes early if a newer display request supersedes this one
+                if (!displayJobs.sleepUnlessCancelled(ms)) {
+                    throw new Stop(false, "Superseded by a newer display request");
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt(); // Restore interruption status
                 Log.w(VM_TAG, "Pause interrupted", e);
@@ -297,6 +822,14 @@ public class MainActivity extends AppCompatActivity {
         protected void onCleared() {
             super.onCleared();
             Log.d(VM_TAG, "ViewModel onCleared");
+            getApplication().unregisterComponentCallbacks(memoryCallbacks);
+            markdownLoader.shutdown();
+            documentWriter.shutdown();   // Unsaved edits are still written
+            documentWatcher.shutdown();
+            pendingOperations.clear();
+            textSocketServer.stop();
+            displayJobs.cancelAll();
+            renderThread.quit();
             if (ultralite != null) {
                 ultralite.getControlledByMe().removeObserver(controlledObserver);
                 // Release control when the ViewModel is cleared (MainActivity is finishing)
@@ -332,25 +865,76 @@ public class MainActivity extends AppCompatActivity {
         public String getReason() { return reason; }
     }
 
+    // Converted images are immutable, so one cache serves every caller
+    static final LVGLImageCache imageCache = new LVGLImageCache();
+
+    // Rendered scroll slices, shared by every SCROLL demo and the teleprompter
+    static final SliceCache sliceCache = new SliceCache();
+
+    // Shared so every foreground image send sees the same decision
+    static final ImageEncodingPolicy imagePolicy = new ImageEncodingPolicy(ImageEncodingPolicy.DEFAULT_LATENCY_BUDGET_MS);
+
+    // Images the canvas demos show over and over, converted in the background at startup
+    private static final int[] WARM_UP_IMAGES = {R.drawable.rocket, R.drawable.happy, R.drawable.wink, R.drawable.poop};
+
     /**
      * Loads an image resource and converts it to an LVGLImage.
+     * Conversions are cached, so asking again for the same image and depth skips decoding and
+     * quantising the bitmap.
      * @param context Context for accessing resources.
      * @param resourceId The drawable resource ID.
      * @param singleBit True for 1-bit color depth, false for 2-bit.
      * @return LVGLImage or null if loading fails.
      */
     static LVGLImage loadLVGLImage(@NonNull Context context, int resourceId, boolean singleBit) {
+        int colorSpace = singleBit ? LVGLImage.CF_INDEXED_1_BIT : LVGLImage.CF_INDEXED_2_BIT;
+        LVGLImage cached = imageCache.get(resourceId, colorSpace);
+        if (cached != null) return cached;
+        Bitmap bitmap = decodeBitmap(context, resourceId);
+        return bitmap != null ? convertLVGLImage(resourceId, bitmap, colorSpace) : null;
+    }
+
+    /**
+     * Loads a foreground image in the format the policy picks for the current link conditions.
+     * Not for the background, which needs 2-bit images. Once the image is cached in either format
+     * its size is known, and the bitmap is only decoded again for a format not converted yet.
+     * @return LVGLImage or null if loading fails.
+     */
+    static LVGLImage loadLVGLImage(@NonNull Context context, int resourceId, @NonNull ImageEncodingPolicy policy) {
+        int[] size = imageCache.getSize(resourceId);
+        if (size != null) {
+            boolean singleBit = policy.chooseFormat(size[0], size[1]) == LVGLImage.CF_INDEXED_1_BIT;
+            return loadLVGLImage(context, resourceId, singleBit);
+        }
+        Bitmap bitmap = decodeBitmap(context, resourceId);
+        if (bitmap == null) return null;
+        return convertLVGLImage(resourceId, bitmap, policy.chooseFormat(bitmap.getWidth(), bitmap.getHeight()));
+    }
+
+    @Nullable
+    private static Bitmap decodeBitmap(@NonNull Context context, int resourceId) {
         try {
-            BitmapDrawable drawable = (BitmapDrawable) ResourcesCompat.getDrawable(
-                    context.getResources(), resourceId, context.getTheme());
-            if (drawable != null && drawable.getBitmap() != null) {
-                int colorSpace = singleBit ? LVGLImage.CF_INDEXED_1_BIT : LVGLImage.CF_INDEXED_2_BIT;
-                return LVGLImage.fromBitmap(drawable.getBitmap(), colorSpace);
-            }
+            Drawable drawable = ResourcesCompat.getDrawable(context.getResources(), resourceId, context.getTheme());
+            if (drawable instanceof BitmapDrawable) return ((BitmapDrawable) drawable).getBitmap();
         } catch (Exception e) {
             Log.e(TAG, "Error loading LVGLImage for resource ID: " + resourceId, e);
         }
         return null;
     }
 
+    @Nullable
+    private static LVGLImage convertLVGLImage(int resourceId, @NonNull Bitmap bitmap, int colorSpace) {
+        try {
+            LVGLImage image = LVGLImage.fromBitmap(bitmap, colorSpace);
+            if (image != null) {
+                imageCache.put(resourceId, colorSpace, image, bitmap.getWidth(), bitmap.getHeight(),
+                        LinkMetrics.imageBytes(bitmap.getWidth(), bitmap.getHeight(), colorSpace));
+            }
+            return image;
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting LVGLImage for resource ID: " + resourceId, e);
+            return null;
+        }
+    }
+
 } // End of MainActivity
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Splits an {@link EditableDocument} into blocks that can be rendered on their own, for the
+ * phone-side preview.
+ *
+ * A block ends at a blank line or before a heading, except inside a fenced code block, and except
+ * when a list or a quote goes on after the blank line with an indented line: that continues a list
+ * item, and on its own it would render as an indented code block. A block is
+ * never longer than {@link #MAX_BLOCK_LINES}, so no single item of the preview takes long to lay
+ * out; a fenced code block cut this way is closed at the end of one block and reopened at the start
+ * of the next, so both halves still render as code.
+ *
+ * Only line numbers are kept, the text of a block is decoded from the document when it is asked
+ * for. Constructed on a background thread, since it reads every line once.
+ */
+class MarkdownBlocks {
+    static final int MAX_BLOCK_LINES = 40;
+
+    private final EditableDocument document;
+    private int[] starts = new int[256];   // First line of each block; the next block's start ends it
+    private String[] fences = new String[256];   // Fence a block continues, or null
+    private int size;
+
+    MarkdownBlocks(@NonNull EditableDocument document) {
+        this.document = document;
+        int lineCount = document.getLineCount();
+        String fence = null;       // The fence that opened the current code block
+        int blockStart = -1;
+        boolean list = false;      // The current block has a list or a quote, which indented lines continue
+        boolean blank = false;     // A blank line came after the current block's last line
+        for (int i = 0; i < lineCount; i++) {
+            String line = document.getLine(i);
+            String trimmed = line.trim();
+            if (blockStart >= 0 && i - blockStart >= MAX_BLOCK_LINES) {
+                blockStart = -1;
+            }
+            if (fence == null) {
+                if (trimmed.isEmpty()) {
+                    blank = true;
+                    continue;
+                }
+                boolean indented = line.charAt(0) == ' ' || line.charAt(0) == '\t';
+                if (blank && !(list && indented)) blockStart = -1;
+                blank = false;
+                if (trimmed.startsWith("#")) blockStart = -1;
+                if (blockStart < 0) {
+                    blockStart = add(i, null);
+                    list = false;
+                }
+                if (!indented && startsListOrQuote(trimmed)) list = true;
+                if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) fence = trimmed.substring(0, 3);
+            } else {
+                if (blockStart < 0) blockStart = add(i, fence);
+                if (trimmed.startsWith(fence)) fence = null;
+            }
+        }
+        starts = Arrays.copyOf(starts, size + 1);
+        starts[size] = lineCount;   // Blank lines after a block belong to it, Markwon ignores them
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** First line of the block in the document. */
+    int getStartLine(int block) {
+        return starts[block];
+    }
+
+    /** The Markdown of one block, with its fences restored if it is part of a longer code block. */
+    @NonNull
+    String getText(int block) {
+        StringBuilder sb = new StringBuilder();
+        String fence = fences[block];
+        if (fence != null) sb.append(fence).append('\n');
+        String open = fence;
+        int end = Math.min(starts[block + 1], document.getLineCount());   // Lines may have been deleted since
+        for (int i = starts[block]; i < end; i++) {
+            String line = document.getLine(i);
+            String trimmed = line.trim();
+            if (open == null && (trimmed.startsWith("```") || trimmed.startsWith("~~~"))) {
+                open = trimmed.substring(0, 3);
+            } else if (open != null && trimmed.startsWith(open)) {
+                open = null;
+            }
+            sb.append(line).append('\n');
+        }
+        if (open != null) sb.append(open).append('\n');
+        return sb.toString();
+    }
+
+    // A quote, or a bullet or numbered list item
+    private static boolean startsListOrQuote(String trimmed) {
+        if (trimmed.startsWith(">")) return true;
+        if (trimmed.length() > 1 && "-*+".indexOf(trimmed.charAt(0)) >= 0 && trimmed.charAt(1) == ' ') return true;
+        int digits = 0;
+        while (digits < trimmed.length() && Character.isDigit(trimmed.charAt(digits))) digits++;
+        return digits > 0 && digits + 1 < trimmed.length()
+                && (trimmed.charAt(digits) == '.' || trimmed.charAt(digits) == ')') && trimmed.charAt(digits + 1) == ' ';
+    }
+
+    private int add(int line, String fence) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            fences = Arrays.copyOf(fences, size * 2);
+        }
+        starts[size] = line;
+        fences[size] = fence;
+        size++;
+        return line;
+    }
+}
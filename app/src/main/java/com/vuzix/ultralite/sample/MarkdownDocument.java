@@ -0,0 +1,180 @@
+package com.vuzix.ultralite.sample;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only view of a Markdown file that never holds the text on the Java heap.
+ *
+ * The bytes stay in a memory-mapped buffer, and a {@link LineIndex} records where each line starts.
+ * A line is only decoded into a String when somebody asks for it, so heap use depends on how many
+ * lines are being looked at rather than on the size of the file.
+ *
+ * The mapping is released by the garbage collector once the document is no longer referenced.
+ * The mapping is of a private copy made by {@link MarkdownLoader}, so the lines read here do not
+ * change underneath their readers when the file is saved or rewritten by another app.
+ */
+class MarkdownDocument {
+    private final Uri uri;
+    private final MappedByteBuffer bytes;
+    private final LineIndex index;
+    // Lines are decoded on several threads at once when formatting in parallel
+    private static final ThreadLocal<byte[]> lineBuffer = new ThreadLocal<>();
+    private volatile DocumentCache.FormattedLines formattedLines;
+    private volatile DocumentCache.Key fileKey;
+
+    MarkdownDocument(@NonNull Uri uri, @NonNull MappedByteBuffer bytes, @NonNull LineIndex index) {
+        this.uri = uri;
+        this.bytes = bytes;
+        this.index = index;
+    }
+
+    @NonNull
+    Uri getUri() {
+        return uri;
+    }
+
+    int getLineCount() {
+        return index.size();
+    }
+
+    /** Size of the file in bytes. */
+    int getLength() {
+        return bytes.capacity();
+    }
+
+    /** Byte offset where a line starts. */
+    int getLineStart(int line) {
+        return index.start(line);
+    }
+
+    /** Byte offset just past a line, including its terminator if it has one. */
+    int getLineEnd(int line) {
+        return index.end(line);
+    }
+
+    /** True if lines end with CR LF, judging by the first line. */
+    boolean usesCrLf() {
+        if (getLineCount() == 0) return false;
+        MappedByteBuffer b = bytes;
+        int end = index.end(0);
+        return end - index.start(0) >= 2 && b.get(end - 1) == '\n' && b.get(end - 2) == '\r';
+    }
+
+    /** True if the file ends with a line break, so its last line has a terminator. */
+    boolean endsWithLineBreak() {
+        return getLength() > 0 && bytes.get(getLength() - 1) == '\n';
+    }
+
+    /** Copies the bytes from {@code from} to {@code to} as they are in the file. */
+    void writeBytes(int from, int to, @NonNull OutputStream out) throws IOException {
+        MappedByteBuffer b = bytes;
+        byte[] buffer = new byte[Math.min(64 * 1024, Math.max(1, to - from))];
+        for (int pos = from; pos < to; ) {
+            int n = Math.min(buffer.length, to - pos);
+            for (int i = 0; i < n; i++) buffer[i] = b.get(pos + i);
+            out.write(buffer, 0, n);
+            pos += n;
+        }
+    }
+
+    /**
+     * Decodes one line, without its line terminator.
+     *
+     * @param line Zero-based line number
+     */
+    @NonNull
+    String getLine(int line) {
+        int start = index.start(line);
+        int end = index.end(line);
+        if (end > start && bytes.get(end - 1) == '\n') end--;
+        if (end > start && bytes.get(end - 1) == '\r') end--;
+        int len = end - start;
+        byte[] buffer = lineBuffer.get();
+        if (buffer == null || buffer.length < len) {
+            buffer = new byte[Math.max(len, 256)];
+            lineBuffer.set(buffer);
+        }
+        // Absolute gets do not touch the buffer position, so concurrent readers are safe
+        for (int i = 0; i < len; i++) buffer[i] = bytes.get(start + i);
+        return new String(buffer, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** Records the version of the file the document was read from, as reported by the provider. */
+    void setFileKey(@Nullable DocumentCache.Key fileKey) {
+        this.fileKey = fileKey;
+    }
+
+    /** The version of the file the document was read from, or null if the provider did not say. */
+    @Nullable
+    DocumentCache.Key getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Attaches lines that have already been formatted for the glasses, typically read from the
+     * {@link DocumentCache}.
+     */
+    void setFormattedLines(@Nullable DocumentCache.FormattedLines formattedLines) {
+        this.formattedLines = formattedLines != null && formattedLines.size() == getLineCount() ? formattedLines : null;
+    }
+
+    /** Returns the line formatted for the glasses, or null if the formatted lines are not available yet. */
+    @Nullable
+    String getFormattedLine(int line) {
+        DocumentCache.FormattedLines formatted = formattedLines;
+        return formatted != null ? formatted.get(line) : null;
+    }
+
+    /**
+     * Decodes the whole file. This defeats the purpose of the class and is only meant for
+     * consumers that genuinely need everything at once.
+     */
+    @NonNull
+    String getText() {
+        StringBuilder sb = new StringBuilder(getLength());
+        for (int i = 0; i < getLineCount(); i++) sb.append(getLine(i)).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Byte offsets of the start of every line in a file. Offsets are stored as ints, which matches
+     * the 2 GB limit of a single {@link MappedByteBuffer}.
+     */
+    static class LineIndex {
+        private int[] starts = new int[1024];
+        private int size;
+        private int length;
+
+        void add(int start) {
+            if (size == starts.length) starts = Arrays.copyOf(starts, size * 2);
+            starts[size++] = start;
+        }
+
+        /** Sets the total length of the file, which is where the last line ends. */
+        void setLength(int length) {
+            this.length = length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int start(int line) {
+            return starts[line];
+        }
+
+        /** Offset just past the line, including its terminator. */
+        int end(int line) {
+            return line + 1 < size ? starts[line + 1] : length;
+        }
+    }
+}
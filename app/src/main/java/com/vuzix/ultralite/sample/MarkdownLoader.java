@@ -0,0 +1,227 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Opens a Markdown document from a content URI on a background thread.
+ *
+ * The file is streamed in fixed-size chunks into a private copy in the app cache, and the line index
+ * of a {@link MarkdownDocument} is built on the way, so large notes never block the UI thread and are
+ * never copied onto the heap. The listener is told about progress as chunks are copied, and gets the
+ * first screen of lines as soon as they have been indexed, long before the rest of the file is
+ * available.
+ *
+ * Only the copy is memory-mapped, never the provider's file: another app may truncate that in place,
+ * and reading a mapping past the new end of its file kills the process. The copy is unlinked at once
+ * and lives as long as its mapping.
+ *
+ * Notes that have not changed since they were last opened take their formatted lines from the
+ * {@link DocumentCache}.
+ *
+ * All listener callbacks are delivered on the main thread. Starting a new load cancels the
+ * previous one, and a cancelled load delivers no further callbacks.
+ */
+class MarkdownLoader {
+    private static final String TAG = "MarkdownLoader";
+
+    static final int FIRST_SCREEN_LINES = 8;   // Same as the number of lines visible on the glasses
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    interface Listener {
+        /** The first {@link #FIRST_SCREEN_LINES} lines (or fewer, for short files) are available. */
+        void onFirstLines(@NonNull List<String> lines);
+
+        void onProgress(long bytesRead, long totalBytes);
+
+        void onLoaded(@NonNull MarkdownDocument document);
+
+        void onError(@NonNull Exception e);
+    }
+
+    private final ContentResolver resolver;
+    private final File cacheDir;
+    private final DocumentCache documentCache;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<?> currentLoad;
+    private int generation;
+
+    MarkdownLoader(@NonNull ContentResolver resolver, @NonNull File cacheDir) {
+        this.resolver = resolver;
+        this.cacheDir = cacheDir;
+        documentCache = new DocumentCache(cacheDir);
+    }
+
+    /**
+     * Starts loading the given document, cancelling any load that is still running.
+     * Must be called from the main thread.
+     */
+    void load(@NonNull Uri uri, @NonNull Listener listener) {
+        cancel();
+        final int loadGeneration = generation;
+        currentLoad = executor.submit(() -> read(uri, listener, loadGeneration));
+    }
+
+    /** Cancels the running load, if any. Must be called from the main thread. */
+    void cancel() {
+        generation++;
+        if (currentLoad != null) {
+            currentLoad.cancel(true);
+            currentLoad = null;
+        }
+    }
+
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void read(Uri uri, Listener listener, int loadGeneration) {
+        File copy = null;
+        try {
+            // A save that was cut off is finished first, so the note is read in one piece
+            DocumentWriter.recover(resolver, cacheDir, uri);
+            DocumentCache.Key key = DocumentCache.Key.query(resolver, uri);
+            final long totalBytes = key != null ? key.size : -1;
+
+            // The note is copied as it streams in and indexed on the way; only the copy is mapped
+            copy = File.createTempFile("markdown", ".md", cacheDir);
+            MarkdownDocument.LineIndex index = new MarkdownDocument.LineIndex();
+            ByteArrayOutputStream head = new ByteArrayOutputStream();   // Until the first lines are out
+            long pos = 0;
+            boolean lineStart = true;   // The next byte starts a line
+            try (InputStream is = Objects.requireNonNull(resolver.openInputStream(uri));
+                 OutputStream os = new FileOutputStream(copy)) {
+                byte[] buffer = new byte[CHUNK_BYTES];
+                int n;
+                while ((n = fill(is, buffer)) > 0) {
+                    if (Thread.interrupted()) return;
+                    if (pos + n > Integer.MAX_VALUE) throw new IOException(uri + " is too large to map");
+                    os.write(buffer, 0, n);
+                    // Skip a UTF-8 byte order mark so it does not end up in the first line
+                    int from = pos == 0 && n >= 3 && (buffer[0] & 0xFF) == 0xEF
+                            && (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF ? 3 : 0;
+                    for (int i = from; i < n; i++) {
+                        if (lineStart) index.add((int) pos + i);
+                        lineStart = buffer[i] == '\n';
+                    }
+                    pos += n;
+                    if (head != null) {
+                        head.write(buffer, 0, n);
+                        if (index.size() > FIRST_SCREEN_LINES) {
+                            publishFirstLines(listener, head.toByteArray(), index, loadGeneration);
+                            head = null;
+                        }
+                    }
+                    final long bytesRead = pos;
+                    post(loadGeneration, () -> listener.onProgress(bytesRead, totalBytes));
+                }
+            }
+            index.setLength((int) pos);
+            MappedByteBuffer bytes;
+            try (FileChannel channel = new RandomAccessFile(copy, "r").getChannel()) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (Thread.interrupted()) return;
+
+            DocumentCache.Entry cached = key != null ? documentCache.read(key) : null;
+            if (cached != null && cached.index.end(cached.index.size() - 1) == bytes.capacity()) {
+                // Unchanged since it was last opened, so no formatting is needed
+                MarkdownDocument document = new MarkdownDocument(uri, bytes, cached.index);
+                document.setFileKey(key);
+                document.setFormattedLines(cached.formattedLines);
+                if (head != null) publishFirstLines(listener, document, loadGeneration);
+                post(loadGeneration, () -> listener.onLoaded(document));
+                return;
+            }
+
+            MarkdownDocument document = new MarkdownDocument(uri, bytes, index);
+            document.setFileKey(key);
+            if (head != null) publishFirstLines(listener, document, loadGeneration);
+            post(loadGeneration, () -> listener.onLoaded(document));
+
+            // The document is usable already; formatting it for the cache continues in the background
+            if (key != null) writeCache(key, document, index);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) return;
+            Log.e(TAG, "Error reading " + uri, e);
+            post(loadGeneration, () -> listener.onError(e));
+        } finally {
+            // The mapping stays valid after the file is unlinked, and nothing is left behind
+            //noinspection ResultOfMethodCallIgnored
+            if (copy != null) copy.delete();
+        }
+    }
+
+    // Reads until the buffer is full or the stream ends, so progress is reported once per chunk
+    private static int fill(InputStream is, byte[] buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (total < buffer.length && (n = is.read(buffer, total, buffer.length - total)) != -1) total += n;
+        return total;
+    }
+
+    private void writeCache(DocumentCache.Key key, MarkdownDocument document, MarkdownDocument.LineIndex index) {
+        try {
+            document.setFormattedLines(documentCache.write(key, document, index));
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "Caching " + key.uri + " cancelled");
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache " + key.uri, e);
+        }
+    }
+
+    // The first lines from the bytes read so far, before the document can be mapped
+    private void publishFirstLines(Listener listener, byte[] head, MarkdownDocument.LineIndex index, int loadGeneration) {
+        List<String> firstLines = new ArrayList<>(FIRST_SCREEN_LINES);
+        for (int i = 0; i < FIRST_SCREEN_LINES; i++) {
+            int start = index.start(i);
+            int end = index.start(i + 1);
+            if (end > start && head[end - 1] == '\n') end--;
+            if (end > start && head[end - 1] == '\r') end--;
+            firstLines.add(new String(head, start, end - start, StandardCharsets.UTF_8));
+        }
+        final List<String> lines = Collections.unmodifiableList(firstLines);
+        post(loadGeneration, () -> listener.onFirstLines(lines));
+    }
+
+    private void publishFirstLines(Listener listener, MarkdownDocument document, int loadGeneration) {
+        int count = Math.min(FIRST_SCREEN_LINES, document.getLineCount());
+        List<String> firstLines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) firstLines.add(document.getLine(i));
+        final List<String> lines = Collections.unmodifiableList(firstLines);
+        post(loadGeneration, () -> listener.onFirstLines(lines));
+    }
+
+    // Drops the callback if a newer load (or a cancel) happened in the meantime
+    private void post(int loadGeneration, Runnable callback) {
+        mainHandler.post(() -> {
+            if (loadGeneration == generation) callback.run();
+        });
+    }
+}
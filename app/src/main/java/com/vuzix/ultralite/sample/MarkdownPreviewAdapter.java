@@ -0,0 +1,133 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Spanned;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.noties.markwon.Markwon;
+
+/**
+ * Shows an {@link EditableDocument} in a RecyclerView, one {@link MarkdownBlocks} block per item, so
+ * only the blocks on screen are laid out.
+ *
+ * Nothing is parsed on the UI thread. The blocks are found on a background thread after the
+ * adapter is created, and each block is rendered to spans by Markwon on that same thread the first
+ * time it comes near the screen; until then it shows as plain text. Rendered blocks are kept in a
+ * small LRU, and blocks that scrolled far away before their turn came are not rendered at all.
+ *
+ * Each block is rendered on its own, so a reference-style link only resolves within its block.
+ * Call {@link #release()} when the preview closes.
+ */
+class MarkdownPreviewAdapter extends RecyclerView.Adapter<MarkdownPreviewAdapter.BlockHolder> {
+    private static final String TAG = "MarkdownPreview";
+    private static final int CACHED_BLOCKS = 128;
+    private static final int PREFETCH_BLOCKS = 8;     // Rendered past the last bound block
+    private static final int MAX_RENDER_DISTANCE = 32; // Further than this from the screen, skip
+
+    private final EditableDocument document;
+    private final Markwon markwon;
+    private final int padding;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "MarkdownPreview"));
+    private final LruCache<Integer, Spanned> rendered = new LruCache<>(CACHED_BLOCKS);
+    private final Set<Integer> requested = new HashSet<>();   // UI thread only
+    private MarkdownBlocks blocks;                            // Null until split, UI thread only
+    private volatile int lastBound;
+
+    static class BlockHolder extends RecyclerView.ViewHolder {
+        final TextView textView;
+
+        BlockHolder(TextView textView) {
+            super(textView);
+            this.textView = textView;
+        }
+    }
+
+    MarkdownPreviewAdapter(@NonNull EditableDocument document, @NonNull Markwon markwon, int padding) {
+        this.document = document;
+        this.markwon = markwon;
+        this.padding = padding;
+        worker.execute(() -> {
+            MarkdownBlocks split = new MarkdownBlocks(document);
+            mainHandler.post(() -> {
+                blocks = split;
+                notifyDataSetChanged();
+            });
+        });
+    }
+
+    /** Stops rendering; blocks already queued are dropped. */
+    void release() {
+        worker.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        rendered.evictAll();
+    }
+
+    @Override
+    public int getItemCount() {
+        return blocks != null ? blocks.size() : 0;
+    }
+
+    @NonNull
+    @Override
+    public BlockHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView textView = new TextView(parent.getContext());
+        textView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        textView.setPadding(padding, 0, padding, padding / 2);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        return new BlockHolder(textView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BlockHolder holder, int position) {
+        lastBound = position;
+        Spanned spanned = rendered.get(position);
+        if (spanned != null) {
+            markwon.setParsedMarkdown(holder.textView, spanned);
+        } else {
+            // Plain lines for now, the rendered block replaces them when it is ready
+            holder.textView.setText(blocks.getText(position));
+            request(position);
+        }
+        for (int i = position + 1; i <= position + PREFETCH_BLOCKS && i < blocks.size(); i++) {
+            if (rendered.get(i) == null) request(i);
+        }
+    }
+
+    private void request(int block) {
+        if (!requested.add(block) || worker.isShutdown()) return;
+        final MarkdownBlocks source = blocks;
+        worker.execute(() -> {
+            Spanned spanned = null;
+            if (Math.abs(block - lastBound) <= MAX_RENDER_DISTANCE) {
+                try {
+                    spanned = markwon.toMarkdown(source.getText(block));
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not render block " + block + " of " + document.getUri(), e);
+                }
+            }
+            final Spanned result = spanned;
+            mainHandler.post(() -> {
+                requested.remove(block);
+                if (result == null || source != blocks) return;
+                rendered.put(block, result);
+                notifyItemChanged(block);
+            });
+        });
+    }
+}
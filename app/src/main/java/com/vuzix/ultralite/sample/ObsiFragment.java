@@ -13,6 +13,8 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.view.GestureDetector;
@@ -26,18 +28,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Objects;
 import androidx.lifecycle.ViewModelProvider; // For ViewModel access
 import io.noties.markwon.Markwon;
 import androidx.appcompat.app.AlertDialog;
 import android.util.TypedValue;
-import android.widget.ScrollView;
+import android.widget.FrameLayout;
 import android.widget.LinearLayout;
-import com.vuzix.ultralite.UltraliteSDK;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 public class ObsiFragment extends Fragment {
 
@@ -50,10 +48,13 @@ public class ObsiFragment extends Fragment {
     private Button buttonClearGlasses;
 
     private Button buttonViewFile;
+    private Button buttonTeleprompter;
+    private SeekBar seekBarTeleprompterSpeed;
     private TextView textViewMarkdownContent;
+    private ProgressBar progressLoadMarkdown;
     private Markwon markwon;
     private MainActivity.DemoActivityViewModel demoActivityViewModel;
-    private String currentMarkdownContent = ""; // To store the loaded content
+    private EditableDocument currentDocument; // The loaded document, kept by the ViewModel
 
     private View pointer;
     private GestureDetector gestureDetector;
@@ -61,6 +62,10 @@ public class ObsiFragment extends Fragment {
 
     private int pointerPos=0;
     private static final int LINE_HEIGHT_PX=30; // same as ViewModel
+    // Teleprompter speed slider: all the way right is one line every MIN_PROMPT_DURATION_MS
+    private static final int MIN_PROMPT_DURATION_MS = 500;
+    private static final int MAX_PROMPT_DURATION_MS = 4000;
+    private static final int PROMPT_DURATION_STEP_MS = 100;
 
 
     // ActivityResultLauncher for the file picker
@@ -69,12 +74,14 @@ public class ObsiFragment extends Fragment {
                 if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
                     Uri uri = result.getData().getData();
                     if (uri != null) {
-                        // Persist read permission for the URI
-                        final int takeFlags = Intent.FLAG_GRANT_READ_URI_PERMISSION;
+                        // Persist read permission for the URI, and write permission if the provider
+                        // granted it, so edits can be saved back
+                        final int takeFlags = result.getData().getFlags()
+                                & (Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
                         requireContext().getContentResolver().takePersistableUriPermission(uri, takeFlags);
 
                         saveMarkdownFileUri(uri);
-                        loadAndDisplayMarkdown(uri);
+                        loadAndDisplayMarkdown(uri, true);
                     }
                 }
             });
@@ -100,14 +107,27 @@ public class ObsiFragment extends Fragment {
         buttonSendToGlasses= view.findViewById(R.id.buttonSendToGlasses);
         buttonClearGlasses = view.findViewById(R.id.buttonClearGlasses);
         buttonViewFile     = view.findViewById(R.id.buttonViewFile);
+        buttonTeleprompter = view.findViewById(R.id.buttonTeleprompter);
+        seekBarTeleprompterSpeed = view.findViewById(R.id.seekBarTeleprompterSpeed);
+        progressLoadMarkdown    = view.findViewById(R.id.progressLoadMarkdown);
+        textViewMarkdownContent = view.findViewById(R.id.textViewMarkdownContent);
         pointer       = view.findViewById(R.id.pointer);
         View gesture  = view.findViewById(R.id.gestureArea);
 
         buttonSelectFile.setOnClickListener(v -> openFilePicker());
         buttonSendToGlasses.setOnClickListener(v -> sendMarkdownToGlasses());
-        UltraliteSDK ultralite = UltraliteSDK.get(requireContext().getApplicationContext());
-        buttonClearGlasses.setOnClickListener(v -> { if (ultralite != null) ultralite.releaseControl(); });
+        buttonClearGlasses.setOnClickListener(v -> demoActivityViewModel.releaseControl());
         buttonViewFile.setOnClickListener(v -> showFilePopup());
+        buttonTeleprompter.setOnClickListener(v -> toggleTeleprompter());
+        seekBarTeleprompterSpeed.setMax((MAX_PROMPT_DURATION_MS - MIN_PROMPT_DURATION_MS) / PROMPT_DURATION_STEP_MS);
+        seekBarTeleprompterSpeed.setProgress((MAX_PROMPT_DURATION_MS - Teleprompter.DEFAULT_DURATION_MS) / PROMPT_DURATION_STEP_MS);
+        seekBarTeleprompterSpeed.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) demoActivityViewModel.setTeleprompterDuration(getPromptDuration());
+            }
+            @Override public void onStartTrackingTouch(SeekBar seekBar) { }
+            @Override public void onStopTrackingTouch(SeekBar seekBar) { }
+        });
 
         // --- gesture plumbing with verbose logs ---
         final float[] accum = {0f};                      // accumulates dy
@@ -147,28 +167,54 @@ public class ObsiFragment extends Fragment {
     }
 
     private void showFilePopup() {
-        if (TextUtils.isEmpty(currentMarkdownContent)) {
-            Toast.makeText(getContext(), "No file loaded.", Toast.LENGTH_SHORT).show();
+        if (currentDocument == null || currentDocument.getLineCount() == 0) {
+            String message = isMarkdownLoading() ? "File is still loading." : "No file loaded.";
+            Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
             return;
         }
-        TextView tv = new TextView(requireContext());
+        // Only the blocks on screen are parsed and laid out, so this opens as fast for a long
+        // note as for a short one
         int pad = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,16,getResources().getDisplayMetrics());
-        tv.setPadding(pad,pad,pad,pad);
-        markwon.setMarkdown(tv, currentMarkdownContent);
+        MarkdownPreviewAdapter adapter = new MarkdownPreviewAdapter(currentDocument, markwon, pad);
+        RecyclerView rv = new RecyclerView(requireContext());
+        rv.setLayoutManager(new LinearLayoutManager(requireContext()));
+        rv.setAdapter(adapter);
+        rv.setPadding(0, pad, 0, 0);
 
-        ScrollView sv = new ScrollView(requireContext());
-        sv.addView(tv);
+        // A RecyclerView that wraps its content would lay out every block, so give it a height
+        FrameLayout frame = new FrameLayout(requireContext());
+        int height = (int) (getResources().getDisplayMetrics().heightPixels * 0.7f);
+        frame.addView(rv, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
 
         new AlertDialog.Builder(requireContext())
-                .setView(sv)
+                .setView(frame)
                 .setPositiveButton("Close", null)
+                .setOnDismissListener(dialog -> adapter.release())
                 .show();
     }
 
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        // Try to load the saved Markdown file URI on fragment start
+
+        demoActivityViewModel.getMarkdownFirstLines().observe(getViewLifecycleOwner(), lines ->
+                textViewMarkdownContent.setText(TextUtils.join("\n", lines)));
+        demoActivityViewModel.getMarkdownLoadProgress().observe(getViewLifecycleOwner(), percent -> {
+            progressLoadMarkdown.setVisibility(percent < 0 ? View.GONE : View.VISIBLE);
+            if (percent >= 0) progressLoadMarkdown.setProgress(percent);
+        });
+        demoActivityViewModel.getMarkdownDocument().observe(getViewLifecycleOwner(), document ->
+                currentDocument = document);
+        demoActivityViewModel.isTeleprompterRunning().observe(getViewLifecycleOwner(), running ->
+                buttonTeleprompter.setText(running ? "Stop" : "Prompt"));
+        demoActivityViewModel.getMarkdownLoadMessage().observe(getViewLifecycleOwner(), message -> {
+            if (message == null) return;
+            Toast.makeText(getContext(),message,Toast.LENGTH_LONG).show();
+            demoActivityViewModel.clearMarkdownLoadMessage();
+        });
+
+        // Try to load the saved Markdown file URI on fragment start. The ViewModel keeps the
+        // document across tab recreation, so this only reads the file the first time.
         loadSavedMarkdownFile();
     }
 
@@ -180,7 +226,8 @@ public class ObsiFragment extends Fragment {
         // Or "*/*" and then filter by extension if needed
 
         // For persistent URI access
-        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION
+                | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
 
 
         try {
@@ -211,7 +258,7 @@ public class ObsiFragment extends Fragment {
 
     private void loadSavedMarkdownFile() {
         Uri u = getSavedMarkdownFileUri();
-        if (u!=null) loadAndDisplayMarkdown(u);
+        if (u!=null) loadAndDisplayMarkdown(u, false);
     }
 
     private void clearSavedUriAndInformUser() {
@@ -220,30 +267,39 @@ public class ObsiFragment extends Fragment {
         Toast.makeText(getContext(),"Please re-select the Markdown file.",Toast.LENGTH_LONG).show();
     }
 
-    private void loadAndDisplayMarkdown(Uri uri) {
-        StringBuilder sb = new StringBuilder();
-        try (InputStream is = requireContext().getContentResolver().openInputStream(uri);
-             BufferedReader r = new BufferedReader(new InputStreamReader(Objects.requireNonNull(is)))) {
-            String line;
-            while ((line = r.readLine()) != null) sb.append(line).append('\n');
-            currentMarkdownContent = sb.toString();
-            if (currentMarkdownContent.isEmpty())
-                Toast.makeText(getContext(),"Selected file is empty.",Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            currentMarkdownContent = "";
-            Toast.makeText(getContext(),"Error reading file: "+e.getMessage(),Toast.LENGTH_LONG).show();
-            Log.e(TAG,"Err reading md",e);
+    private void loadAndDisplayMarkdown(Uri uri, boolean force) {
+        demoActivityViewModel.loadMarkdown(uri, force);
+    }
+
+    private boolean isMarkdownLoading() {
+        Integer percent = demoActivityViewModel.getMarkdownLoadProgress().getValue();
+        return percent != null && percent >= 0;
+    }
+
+    private int getPromptDuration() {
+        return MAX_PROMPT_DURATION_MS - seekBarTeleprompterSpeed.getProgress() * PROMPT_DURATION_STEP_MS;
+    }
+
+    private void toggleTeleprompter() {
+        if (Boolean.TRUE.equals(demoActivityViewModel.isTeleprompterRunning().getValue())) {
+            demoActivityViewModel.stopTeleprompter();
+        } else if (currentDocument == null || currentDocument.getLineCount() == 0) {
+            Toast.makeText(getContext(), isMarkdownLoading() ? "File is still loading." : "No Markdown content loaded.",
+                    Toast.LENGTH_SHORT).show();
+        } else {
+            demoActivityViewModel.startTeleprompter(currentDocument, getPromptDuration());
         }
     }
 
     private void sendMarkdownToGlasses() {
-        if (TextUtils.isEmpty(currentMarkdownContent)) {
-            Toast.makeText(getContext(), "No Markdown content loaded to send.", Toast.LENGTH_SHORT).show();
+        if (currentDocument == null || currentDocument.getLineCount() == 0) {
+            String message = isMarkdownLoading() ? "File is still loading." : "No Markdown content loaded to send.";
+            Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
             return;
         }
         if (demoActivityViewModel != null) {
             // Pass the application context if your ViewModel method needs it
-            demoActivityViewModel.displayScrollableTextOnGlasses(currentMarkdownContent);
+            demoActivityViewModel.displayScrollableTextOnGlasses(currentDocument);
             Toast.makeText(getContext(), "Sending to glasses...", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(getContext(), "ViewModel not available.", Toast.LENGTH_SHORT).show();
@@ -0,0 +1,62 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operations waiting for control of the glasses, run together once control is granted.
+ *
+ * Each operation has a key saying what it replaces: a newer operation with the same key supersedes
+ * the waiting one, and takes its place at the back of the queue so the operations still run in the
+ * order the user asked for them. The queue holds at most {@code capacity} operations; when it is
+ * full the oldest one is dropped.
+ *
+ * All methods are thread safe.
+ */
+class PendingOperationQueue {
+    private final int capacity;
+    private final LinkedHashMap<String, Runnable> operations = new LinkedHashMap<>();   // In order of arrival
+    private int dropped;
+
+    PendingOperationQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Queues an operation, superseding any waiting operation with the same key. */
+    synchronized void enqueue(@NonNull String key, @NonNull Runnable operation) {
+        if (operations.remove(key) != null) dropped++;
+        if (operations.size() >= capacity) {
+            Iterator<Map.Entry<String, Runnable>> oldest = operations.entrySet().iterator();
+            oldest.next();
+            oldest.remove();
+            dropped++;
+        }
+        operations.put(key, operation);
+    }
+
+    /** Removes and returns every waiting operation, oldest first. */
+    @NonNull
+    synchronized List<Runnable> drain() {
+        List<Runnable> drained = new ArrayList<>(operations.values());
+        operations.clear();
+        return drained;
+    }
+
+    synchronized void clear() {
+        operations.clear();
+    }
+
+    synchronized int getDepth() {
+        return operations.size();
+    }
+
+    /** Operations superseded or pushed out before they could run. */
+    synchronized int getDroppedCount() {
+        return dropped;
+    }
+}
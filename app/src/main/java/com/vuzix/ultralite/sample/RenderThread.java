@@ -0,0 +1,47 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The one thread that talks to the glasses.
+ *
+ * Every call on {@link com.vuzix.ultralite.UltraliteSDK.Canvas} (and the layout changes that go
+ * with it) is posted here as a command, so SDK calls that block on Bluetooth never run on the UI
+ * thread, and commands reach the glasses in exactly the order they were posted without any locks.
+ * State that describes what is on the glasses is only touched from this thread.
+ */
+class RenderThread {
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    RenderThread() {
+        thread = new HandlerThread("GlassesRender", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /** Handler for the render thread, for components that schedule their own callbacks on it. */
+    @NonNull
+    Handler getHandler() {
+        return handler;
+    }
+
+    /** Queues a command behind every command posted before it. */
+    void post(@NonNull Runnable command) {
+        handler.post(command);
+    }
+
+    boolean isCurrentThread() {
+        return Looper.myLooper() == thread.getLooper();
+    }
+
+    /** Stops the thread once the commands already queued have run. */
+    void quit() {
+        thread.quitSafely();
+    }
+}
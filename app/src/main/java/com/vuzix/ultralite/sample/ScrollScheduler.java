@@ -0,0 +1,84 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Coalesces scroll requests so the glasses never fall behind the finger.
+ *
+ * A fast swipe produces far more scroll events than the Bluetooth link can commit. Rather than
+ * queueing a commit per event, this only remembers the latest target position, and keeps at most
+ * {@code maxInFlight} commits outstanding. Whenever the glasses confirm a commit, it jumps straight
+ * to whatever the target is by then, skipping every position in between.
+ *
+ * If the glasses never confirm a commit (for example because control was lost), the commit is
+ * considered done after {@link #COMMIT_TIMEOUT_MS} so scrolling does not lock up.
+ *
+ * All methods must be called on the thread of the given handler, and callbacks run there too.
+ */
+class ScrollScheduler {
+    private static final String TAG = "ScrollScheduler";
+    static final long COMMIT_TIMEOUT_MS = 1000;
+
+    interface Renderer {
+        /**
+         * Shows the window starting at {@code firstLine} and commits it, calling {@code onCommitted}
+         * once the glasses have confirmed the commit. It may be called from any thread.
+         */
+        void render(int firstLine, @NonNull Runnable onCommitted);
+    }
+
+    private final Handler handler;
+    private final int maxInFlight;
+    private final Renderer renderer;
+    private int target;
+    private int shown;
+    private int inFlight;
+    private int generation;   // Bumped by reset() so stale confirmations are ignored
+
+    ScrollScheduler(@NonNull Handler handler, int maxInFlight, @NonNull Renderer renderer) {
+        this.handler = handler;
+        this.maxInFlight = maxInFlight;
+        this.renderer = renderer;
+    }
+
+    /** Forgets everything pending, for when the window has been redrawn at {@code position}. */
+    void reset(int position) {
+        generation++;
+        target = position;
+        shown = position;
+        inFlight = 0;
+    }
+
+    /** The position the window is heading to, which may not have been shown yet. */
+    int getTarget() {
+        return target;
+    }
+
+    void scrollTo(int position) {
+        target = position;
+        pump();
+    }
+
+    private void pump() {
+        if (inFlight >= maxInFlight || target == shown) return;
+        shown = target;
+        inFlight++;
+        final int line = shown;
+        final int commitGeneration = generation;
+        final boolean[] done = {false};
+        Runnable release = () -> {
+            if (done[0] || commitGeneration != generation) return;
+            done[0] = true;
+            inFlight--;
+            pump();
+        };
+        handler.postDelayed(() -> {
+            if (!done[0] && commitGeneration == generation) Log.w(TAG, "No confirmation for commit of line " + line);
+            release.run();
+        }, COMMIT_TIMEOUT_MS);
+        renderer.render(line, () -> handler.post(release));
+    }
+}
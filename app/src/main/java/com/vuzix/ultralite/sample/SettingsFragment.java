@@ -1,23 +1,143 @@
 package com.vuzix.ultralite.sample; // Adjust package name
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
 
 public class SettingsFragment extends Fragment {
 
+    private static final String TAG = "SettingsFragment";
+    private static final long METRICS_UPDATE_INTERVAL_MS = 1000;
+
+    private MainActivity.DemoActivityViewModel model;
+    private TextView linkMetricsTextView;
+    private final Handler metricsUpdateHandler = new Handler(Looper.getMainLooper());
+    private final Runnable metricsUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateLinkMetrics();
+            metricsUpdateHandler.postDelayed(this, METRICS_UPDATE_INTERVAL_MS);
+        }
+    };
+
     public SettingsFragment() {
         // Required empty public constructor
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        model = new ViewModelProvider(requireActivity()).get(MainActivity.DemoActivityViewModel.class);
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         // Inflate the layout for this fragment
         return inflater.inflate(R.layout.fragment_settings, container, false);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        linkMetricsTextView = view.findViewById(R.id.textViewLinkMetrics);
+        view.findViewById(R.id.buttonExportMetrics).setOnClickListener(v -> exportLinkMetrics());
+        view.findViewById(R.id.buttonResetMetrics).setOnClickListener(v -> {
+            LinkMetrics.get().reset();
+            updateLinkMetrics();
+        });
+
+        Switch socketTextSwitch = view.findViewById(R.id.switchSocketText);
+        socketTextSwitch.setChecked(model.isSocketTextEnabled());
+        socketTextSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (!model.setSocketTextEnabled(isChecked)) {
+                Toast.makeText(getContext(), "Could not open the text socket", Toast.LENGTH_LONG).show();
+                buttonView.setChecked(false);
+            }
+        });
+
+        if (BuildConfig.DEBUG) setUpBenchmark(view);
+    }
+
+    // A developer tool, not offered in release builds
+    private void setUpBenchmark(@NonNull View view) {
+        Button benchmarkButton = view.findViewById(R.id.buttonBenchmarkFormatter);
+        TextView benchmarkResult = view.findViewById(R.id.textViewBenchmarkResult);
+        benchmarkButton.setVisibility(View.VISIBLE);
+        benchmarkResult.setVisibility(View.VISIBLE);
+        benchmarkButton.setOnClickListener(v -> {
+            benchmarkButton.setEnabled(false);
+            benchmarkResult.setText("Running...");
+            final File cacheDir = requireContext().getCacheDir();
+            new Thread(() -> {
+                String result;
+                try {
+                    result = LineFormatterBenchmark.run(cacheDir);
+                } catch (Exception e) {
+                    Log.e(TAG, "Formatter benchmark failed", e);
+                    result = "Benchmark failed: " + e.getMessage();
+                }
+                final String text = result;
+                benchmarkResult.post(() -> {
+                    benchmarkResult.setText(text);
+                    benchmarkButton.setEnabled(true);
+                });
+            }).start();
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        metricsUpdateHandler.post(metricsUpdateRunnable);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        metricsUpdateHandler.removeCallbacks(metricsUpdateRunnable);
+    }
+
+    private void updateLinkMetrics() {
+        if (linkMetricsTextView == null) return;
+        linkMetricsTextView.setText(LinkMetrics.get().snapshot()
+                + "\nDisplay jobs queued: " + model.getDisplayQueueDepth()
+                + ", superseded: " + model.getDisplayDroppedCount()
+                + "\nWaiting for control: " + model.getPendingOperationCount()
+                + ", superseded: " + model.getPendingDroppedCount()
+                + "\nForeground images: " + (MainActivity.imagePolicy.isTwoBit() ? "2-bit" : "1-bit")
+                + "\nScroll slice cache: " + MainActivity.sliceCache.getStats()
+                + "\nSocket text received: " + model.getSocketReceivedChars() + " chars");
+    }
+
+    private void exportLinkMetrics() {
+        // App-specific external storage needs no permission and can be pulled with adb
+        File dir = requireContext().getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : requireContext().getFilesDir(),
+                "link-metrics-" + System.currentTimeMillis() + ".csv");
+        try (Writer out = new FileWriter(file)) {
+            LinkMetrics.get().exportCsv(out);
+            Toast.makeText(getContext(), "Exported to " + file, Toast.LENGTH_LONG).show();
+        } catch (Exception e) {
+            Log.e(TAG, "Metrics export failed", e);
+            Toast.makeText(getContext(), "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+}
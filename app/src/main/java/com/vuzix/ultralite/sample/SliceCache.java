@@ -0,0 +1,260 @@
+package com.vuzix.ultralite.sample;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.UltraliteSDK;
+import com.vuzix.ultralite.utils.scroll.TextToImageSlicer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Scroll slices already rendered by {@link TextToImageSlicer}, keyed by the text, the slice height
+ * and the font size, so text shown again is not rasterised again.
+ *
+ * There are two tiers. The memory tier is an LRU bounded by the estimated size of the slices, like
+ * {@link LVGLImageCache}. The disk tier keeps entries in the app cache directory, compressed, so they
+ * survive the process. Each slice is stored as its width, height, colour format and pixel bytes,
+ * written out field by field rather than with Java serialization, so the format does not depend on
+ * the SDK's classes and only changes with {@link #VERSION}. Each entry stores its text, so two texts
+ * with the same hash are never confused.
+ *
+ * All methods are thread safe. The disk tier does file I/O, so call them off the main thread.
+ */
+class SliceCache {
+    private static final String TAG = "SliceCache";
+    private static final int MAGIC = 0x534C4943;  // "SLIC"
+    private static final int VERSION = 2;
+    private static final int MAX_BYTES = (int) Math.min(2 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 64);
+    private static final long MAX_DISK_BYTES = 8 * 1024 * 1024;
+    private static final int WRITES_PER_EVICTION = 32;   // Listing the directory is not free
+    private static final int MAX_FIELD_BYTES = 16 * 1024 * 1024;  // A corrupt length must not exhaust memory
+
+    private static class Entry {
+        final String text;
+        final LVGLImage[] slices;
+        final int bytes;
+
+        Entry(String text, LVGLImage[] slices, int bytes) {
+            this.text = text;
+            this.slices = slices;
+            this.bytes = bytes;
+        }
+    }
+
+    private final LruCache<String, Entry> memory = new LruCache<String, Entry>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(@NonNull String key, @NonNull Entry entry) {
+            return entry.bytes;
+        }
+    };
+
+    private File dir;             // Null until attached, or after the disk tier was found unusable
+    private int writesSinceEviction;
+    private long hits;
+    private long misses;
+
+    /** Turns on the disk tier, in a directory of the app cache. */
+    synchronized void attachDisk(@NonNull File cacheDir) {
+        dir = new File(cacheDir, "slices");
+    }
+
+    /**
+     * The slices of a text, rendering them if neither tier has them.
+     */
+    @NonNull
+    LVGLImage[] getOrRender(@NonNull String text, int sliceHeight, int fontSize) {
+        LVGLImage[] slices = get(text, sliceHeight, fontSize);
+        if (slices != null) return slices;
+        slices = render(text, sliceHeight, fontSize);
+        put(text, sliceHeight, fontSize, slices);
+        return slices;
+    }
+
+    /** The cached slices of a text, or null. */
+    @Nullable
+    LVGLImage[] get(@NonNull String text, int sliceHeight, int fontSize) {
+        String key = key(text, sliceHeight, fontSize);
+        Entry entry = memory.get(key);
+        if (entry == null || !entry.text.equals(text)) {
+            entry = readDisk(key, text, sliceHeight);
+            if (entry != null) memory.put(key, entry);
+        }
+        synchronized (this) {
+            if (entry != null) hits++;
+            else misses++;
+        }
+        return entry != null ? entry.slices : null;
+    }
+
+    /** Stores the slices of a text; an empty text is not worth storing. */
+    void put(@NonNull String text, int sliceHeight, int fontSize, @NonNull LVGLImage[] slices) {
+        if (text.isEmpty() || slices.length == 0) return;
+        String key = key(text, sliceHeight, fontSize);
+        Entry entry = new Entry(text, slices, slices.length * sliceBytes(sliceHeight));
+        memory.put(key, entry);
+        writeDisk(key, entry, sliceHeight, fontSize);
+    }
+
+    /** Renders every slice of a text without the cache. */
+    @NonNull
+    static LVGLImage[] render(@NonNull String text, int sliceHeight, int fontSize) {
+        TextToImageSlicer slicer = new TextToImageSlicer(text, sliceHeight, fontSize);
+        ArrayList<LVGLImage> slices = new ArrayList<>();
+        while (slicer.hasMoreSlices()) slices.add(slicer.getNextSlice());
+        return slices.toArray(new LVGLImage[0]);
+    }
+
+    /** Lookups answered by either tier, and lookups that had to render, for display. */
+    synchronized String getStats() {
+        return hits + " hits, " + misses + " misses";
+    }
+
+    /** Matches {@link ComponentCallbacks2#onTrimMemory(int)}; the disk tier is kept. */
+    void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            memory.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memory.trimToSize(memory.maxSize() / 2);
+        }
+    }
+
+    private Entry readDisk(String key, String text, int sliceHeight) {
+        File file;
+        synchronized (this) {
+            if (dir == null) return null;
+            file = new File(dir, key);
+        }
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!text.equals(new String(readBytes(in), StandardCharsets.UTF_8))) return null;
+            LVGLImage[] slices = new LVGLImage[in.readInt()];
+            for (int i = 0; i < slices.length; i++) slices[i] = readSlice(in);
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());   // For eviction
+            return new Entry(text, slices, slices.length * sliceBytes(sliceHeight));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable entry " + key, e);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry, int sliceHeight, int fontSize) {
+        File directory;
+        synchronized (this) {
+            if (dir == null) return;
+            directory = dir;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+        File file = new File(directory, key);
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(key, ".tmp", directory);   // Two workers may store the same text
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeBytes(out, entry.text.getBytes(StandardCharsets.UTF_8));  // writeUTF stops at 64 KB
+                out.writeInt(entry.slices.length);
+                for (LVGLImage slice : entry.slices) writeSlice(out, slice);
+            }
+            if (!tmp.renameTo(file)) throw new IOException("Could not rename " + tmp + " to " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not store slices of " + entry.text.length() + " chars at " + sliceHeight
+                    + "/" + fontSize, e);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            if (tmp != null) tmp.delete();
+        }
+        boolean evict;
+        synchronized (this) {
+            evict = ++writesSinceEviction >= WRITES_PER_EVICTION;
+            if (evict) writesSinceEviction = 0;
+        }
+        if (evict) evict(directory);
+    }
+
+    // Keeps the most recently used entries within MAX_DISK_BYTES
+    private static void evict(File directory) {
+        File[] files = directory.listFiles((d, name) -> !name.endsWith(".tmp"));
+        if (files == null) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+            if (total > MAX_DISK_BYTES) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    private static void writeSlice(DataOutputStream out, LVGLImage slice) throws IOException {
+        out.writeInt(slice.getWidth());
+        out.writeInt(slice.getHeight());
+        out.writeInt(slice.getColorFormat());
+        writeBytes(out, slice.getData());
+    }
+
+    private static LVGLImage readSlice(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        int colorFormat = in.readInt();
+        if (width <= 0 || height <= 0) throw new IOException("Bad slice size " + width + "x" + height);
+        return new LVGLImage(colorFormat, width, height, readBytes(in));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FIELD_BYTES) throw new IOException("Bad length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int sliceBytes(int sliceHeight) {
+        return LinkMetrics.imageBytes(UltraliteSDK.Canvas.WIDTH, sliceHeight, LVGLImage.CF_INDEXED_2_BIT);
+    }
+
+    private static String key(String text, int sliceHeight, int fontSize) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update((sliceHeight + ":" + fontSize + ":").getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) name.append(String.format("%02x", b));
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.vuzix.ultralite.sample;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.utils.scroll.TextToImageSlicer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Renders text into scroll slices on worker threads while earlier slices are being sent, and hands
+ * them out in order.
+ *
+ * The text comes in pieces, such as the lines of a document, each sliced by its own
+ * {@link TextToImageSlicer}. Up to {@link #PARALLELISM} pieces are sliced at once. At most
+ * {@code lookAhead} slices (plus the one the reader is waiting for) are held, so memory stays fixed
+ * however much text there is; a worker that gets too far ahead waits for the reader. Pieces found in
+ * {@link MainActivity#sliceCache} are not rendered at all, and pieces rendered here are added to it.
+ *
+ * {@link #next()} and {@link #poll()} are for a single reader thread.
+ */
+class SlicePipeline {
+    static final int PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    // Threads are reused between pipelines but never shared while busy, so one pipeline waiting for
+    // its reader cannot hold up another
+    private static final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "SliceWorker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int pieceCount;
+    private final IntFunction<String> pieces;
+    private final int sliceHeight;
+    private final int fontSize;
+    private final int lookAhead;
+
+    private final Object lock = new Object();
+    private final Map<Integer, ArrayDeque<LVGLImage>> slices = new HashMap<>();
+    private final Set<Integer> finished = new HashSet<>();   // Finished pieces the reader has not passed yet
+    private int nextPiece;       // Next piece a worker will take
+    private int readPiece;       // Piece the reader is reading
+    private int buffered;        // Slices rendered and not yet read
+    private boolean cancelled;
+    private RuntimeException failure;
+
+    /**
+     * @param pieceCount Number of pieces of text
+     * @param pieces Returns piece {@code i}; called on a worker thread. Empty pieces give no slices.
+     */
+    SlicePipeline(int pieceCount, @NonNull IntFunction<String> pieces, int sliceHeight, int fontSize, int lookAhead) {
+        this.pieceCount = pieceCount;
+        this.pieces = pieces;
+        this.sliceHeight = sliceHeight;
+        this.fontSize = fontSize;
+        this.lookAhead = lookAhead;
+        for (int i = 0; i < Math.min(PARALLELISM, pieceCount); i++) workers.execute(this::work);
+    }
+
+    /** A pipeline over a single text, which still renders ahead of the sender. */
+    SlicePipeline(@NonNull String text, int sliceHeight, int fontSize, int lookAhead) {
+        this(1, piece -> text, sliceHeight, fontSize, lookAhead);
+    }
+
+    /**
+     * Waits for the next slice.
+     *
+     * @return The next slice, or null after the last one
+     */
+    LVGLImage next() throws InterruptedException {
+        synchronized (lock) {
+            LVGLImage slice;
+            while ((slice = takeLocked()) == null && !isDoneLocked()) lock.wait();
+            return slice;
+        }
+    }
+
+    /** The next slice if it is ready, otherwise null. */
+    LVGLImage poll() {
+        synchronized (lock) {
+            return takeLocked();
+        }
+    }
+
+    /** True once every slice has been read, or the pipeline was cancelled. */
+    boolean isDone() {
+        synchronized (lock) {
+            return isDoneLocked();
+        }
+    }
+
+    /** Stops the workers and drops the slices not read yet. */
+    void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            slices.clear();
+            buffered = 0;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The first slice of each text, for short texts that fit on one line. Texts missing from
+     * {@link MainActivity#sliceCache} are rendered in parallel.
+     */
+    @NonNull
+    static LVGLImage[] renderFirstSlices(@NonNull String[] texts, int sliceHeight, int fontSize) {
+        Future<?>[] futures = new Future<?>[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            final String text = texts[i];
+            futures[i] = workers.submit(() -> MainActivity.sliceCache.getOrRender(text, sliceHeight, fontSize)[0]);
+        }
+        LVGLImage[] images = new LVGLImage[texts.length];
+        try {
+            for (int i = 0; i < texts.length; i++) images[i] = (LVGLImage) futures[i].get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Slicing failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while slicing", e);
+        }
+        return images;
+    }
+
+    private void work() {
+        while (true) {
+            int piece;
+            synchronized (lock) {
+                if (cancelled || nextPiece >= pieceCount) return;
+                piece = nextPiece++;
+            }
+            try {
+                String text = pieces.apply(piece);
+                if (text != null && !text.isEmpty()) {
+                    LVGLImage[] cached = MainActivity.sliceCache.get(text, sliceHeight, fontSize);
+                    if (cached != null) {
+                        for (LVGLImage slice : cached) {
+                            if (!awaitRoom(piece) || !deliver(piece, slice)) return;
+                        }
+                    } else {
+                        TextToImageSlicer slicer = new TextToImageSlicer(text, sliceHeight, fontSize);
+                        ArrayList<LVGLImage> rendered = new ArrayList<>();
+                        while (slicer.hasMoreSlices()) {
+                            if (!awaitRoom(piece)) return;
+                            LVGLImage slice = slicer.getNextSlice();   // The slow part, outside the lock
+                            rendered.add(slice);
+                            if (!deliver(piece, slice)) return;
+                        }
+                        MainActivity.sliceCache.put(text, sliceHeight, fontSize, rendered.toArray(new LVGLImage[0]));
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                finished.add(piece);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Waits until the piece may have another slice; false if cancelled
+    private boolean awaitRoom(int piece) throws InterruptedException {
+        synchronized (lock) {
+            while (!cancelled && !mayRenderLocked(piece)) lock.wait();
+            return !cancelled;
+        }
+    }
+
+    // Hands a slice to the reader; false if cancelled
+    private boolean deliver(int piece, LVGLImage slice) {
+        synchronized (lock) {
+            if (cancelled) return false;
+            ArrayDeque<LVGLImage> queue = slices.get(piece);
+            if (queue == null) slices.put(piece, queue = new ArrayDeque<>());
+            queue.add(slice);
+            buffered++;
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    // Within the look-ahead, or the reader is waiting for exactly this piece
+    private boolean mayRenderLocked(int piece) {
+        if (buffered < lookAhead) return true;
+        ArrayDeque<LVGLImage> queue = slices.get(piece);
+        return piece == readPiece && (queue == null || queue.isEmpty());
+    }
+
+    private LVGLImage takeLocked() {
+        if (failure != null) throw new IllegalStateException("Slicing failed", failure);
+        if (cancelled) return null;
+        advanceLocked();
+        ArrayDeque<LVGLImage> queue = slices.get(readPiece);
+        if (queue == null || queue.isEmpty()) return null;
+        buffered--;
+        lock.notifyAll();
+        return queue.poll();
+    }
+
+    // Moves the reader past pieces that are finished and fully read
+    private void advanceLocked() {
+        while (readPiece < pieceCount && finished.contains(readPiece)) {
+            ArrayDeque<LVGLImage> queue = slices.get(readPiece);
+            if (queue != null && !queue.isEmpty()) return;
+            slices.remove(readPiece);
+            finished.remove(readPiece);
+            readPiece++;
+            lock.notifyAll();   // A worker may be waiting for the reader to reach its piece
+        }
+    }
+
+    private boolean isDoneLocked() {
+        if (failure != null) throw new IllegalStateException("Slicing failed", failure);
+        advanceLocked();
+        return cancelled || readPiece >= pieceCount;
+    }
+}
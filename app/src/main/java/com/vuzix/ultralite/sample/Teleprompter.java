@@ -0,0 +1,111 @@
+package com.vuzix.ultralite.sample;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.vuzix.ultralite.LVGLImage;
+import com.vuzix.ultralite.Layout;
+import com.vuzix.ultralite.UltraliteSDK;
+
+/**
+ * Scrolls an {@link EditableDocument} across the glasses at a steady rate, like
+ * {@link com.vuzix.ultralite.utils.scroll.AutoScroller} does for a string.
+ *
+ * AutoScroller slices all of its text up front, which is too much for a long note. Here a
+ * {@link SlicePipeline} slices the document line by line in the background, and keeps at most
+ * {@link #LOOK_AHEAD_SLICES} rendered slices waiting, so memory does not depend on the length of the
+ * note. The render thread sends one slice per tick with the native SCROLL commands; the time between
+ * ticks can be changed with {@link #setDuration(int)} while it runs.
+ */
+class Teleprompter {
+    private static final String TAG = "Teleprompter";
+    static final int DEFAULT_DURATION_MS = 1500;
+    private static final int SLICE_HEIGHT = 48;   // Same geometry as DemoScrollAutoScroller
+    private static final int FONT_SIZE = 35;
+    private static final int LOWEST_LINE_SHOWING = 0;
+    private static final int LINES_SHOWING = 4;
+    private static final int MAX_SCROLL_ANIMATION_MS = 500;
+    private static final int LOOK_AHEAD_SLICES = 6;
+
+    private final UltraliteSDK ultralite;
+    private final Handler renderHandler;
+    private final EditableDocument document;
+    private final Runnable onFinished;
+    private SlicePipeline slices;
+    private volatile int durationMs = DEFAULT_DURATION_MS;
+    private boolean stopped;
+
+    /**
+     * @param renderHandler Handler of the thread that talks to the glasses
+     * @param onFinished Runs on the render thread after the last line was shown; may be null
+     */
+    Teleprompter(@NonNull UltraliteSDK ultralite, @NonNull Handler renderHandler, @NonNull EditableDocument document,
+                 Runnable onFinished) {
+        this.ultralite = ultralite;
+        this.renderHandler = renderHandler;
+        this.document = document;
+        this.onFinished = onFinished;
+    }
+
+    /** Must be called on the render thread, with control of the glasses. */
+    void start() {
+        ultralite.setLayout(Layout.SCROLL, 0, true, true, 0);
+        configureScroll();
+        slices = new SlicePipeline(document.getLineCount(), line -> document.getLine(line).trim(),
+                SLICE_HEIGHT, FONT_SIZE, LOOK_AHEAD_SLICES);
+        renderHandler.post(tick);
+    }
+
+    /** The time each line takes to scroll up; takes effect from the next line. */
+    void setDuration(int durationMs) {
+        this.durationMs = durationMs;
+        renderHandler.post(this::configureScroll);
+    }
+
+    int getDuration() {
+        return durationMs;
+    }
+
+    /** Stops scrolling, the lines already shown stay on the glasses. Render thread only. */
+    void stop() {
+        stopped = true;
+        renderHandler.removeCallbacks(tick);
+        if (slices != null) slices.cancel();
+    }
+
+    private void configureScroll() {
+        if (stopped) return;
+        // The animation must finish before the next line arrives
+        ultralite.getScrollingTextView().scrollLayoutConfig(SLICE_HEIGHT, LOWEST_LINE_SHOWING, LINES_SHOWING,
+                Math.min(MAX_SCROLL_ANIMATION_MS, durationMs), false);
+    }
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            if (stopped) return;
+            LVGLImage slice;
+            boolean done;
+            try {
+                slice = slices.poll();
+                done = slice == null && slices.isDone();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Could not slice the document", e);
+                slice = null;
+                done = true;
+            }
+            if (slice != null) {
+                ultralite.getScrollingTextView().sendScrollImage(slice, 0, true);
+                LinkMetrics.get().recordScrollSlice(SLICE_HEIGHT);
+            } else if (done) {
+                stopped = true;
+                if (onFinished != null) onFinished.run();
+                return;
+            }
+            // If the slicer fell behind, this tick shows nothing and the next one tries again
+            renderHandler.postDelayed(this, durationMs);
+        }
+    };
+}
@@ -0,0 +1,171 @@
+package com.vuzix.ultralite.sample;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Accepts UTF-8 text from other processes on the phone through a Unix domain socket in the abstract
+ * namespace, so a transcription app or a log tail can write to the glasses without the UI.
+ *
+ * Text is collected until the display takes it with {@link #takeText()}, once per frame. At most
+ * {@link #MAX_PENDING_CHARS} wait to be taken; beyond that the reader stops reading the socket, its
+ * buffer fills up, and the producer's writes block until the glasses catch up.
+ *
+ * One producer is served at a time, the next one is accepted when it disconnects. From a shell on
+ * the phone: {@code echo hello | nc -U @com.vuzix.ultralite.sample.text} (with a netcat that
+ * supports abstract sockets, such as toybox's).
+ */
+class TextSocketServer {
+    private static final String TAG = "TextSocketServer";
+    static final String SOCKET_NAME = "com.vuzix.ultralite.sample.text";
+    static final int MAX_PENDING_CHARS = 4096;
+    private static final int READ_BUFFER_BYTES = 1024;
+
+    private final StringBuilder pending = new StringBuilder();
+    private LocalServerSocket serverSocket;
+    private LocalSocket client;
+    private Thread acceptThread;
+    private long receivedChars;
+
+    /** Starts listening. Does nothing if already started. */
+    synchronized void start() throws IOException {
+        if (serverSocket != null) return;
+        serverSocket = new LocalServerSocket(SOCKET_NAME);
+        final LocalServerSocket server = serverSocket;
+        acceptThread = new Thread(() -> acceptLoop(server), "TextSocketServer");
+        acceptThread.start();
+        Log.i(TAG, "Listening on @" + SOCKET_NAME);
+    }
+
+    /** Stops listening, disconnects the producer and drops text that was not taken. */
+    void stop() {
+        LocalServerSocket server;
+        LocalSocket connected;
+        Thread thread;
+        synchronized (this) {
+            server = serverSocket;
+            connected = client;
+            thread = acceptThread;
+            serverSocket = null;
+            client = null;
+            acceptThread = null;
+            pending.setLength(0);
+            notifyAll();   // Wakes a reader waiting for room
+        }
+        if (server == null) return;
+        if (thread != null) thread.interrupt();
+        if (connected != null) closeQuietly(connected);
+        // Closing a LocalServerSocket does not wake a blocked accept(), connecting to it does
+        LocalSocket wakeUp = new LocalSocket();
+        try {
+            wakeUp.connect(new LocalSocketAddress(SOCKET_NAME));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not wake the accept thread", e);
+        } finally {
+            closeQuietly(wakeUp);
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing socket", e);
+        }
+    }
+
+    synchronized boolean isRunning() {
+        return serverSocket != null;
+    }
+
+    /** Characters received since starting, for display. */
+    synchronized long getReceivedChars() {
+        return receivedChars;
+    }
+
+    /** Text that arrived since the last call, or an empty string; lets a blocked producer continue. */
+    @NonNull
+    synchronized String takeText() {
+        if (pending.length() == 0) return "";
+        String text = pending.toString();
+        pending.setLength(0);
+        notifyAll();
+        return text;
+    }
+
+    private void acceptLoop(LocalServerSocket server) {
+        while (!Thread.currentThread().isInterrupted()) {
+            LocalSocket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                break;   // Closed by stop()
+            }
+            synchronized (this) {
+                if (serverSocket != server) {
+                    closeQuietly(socket);
+                    break;
+                }
+                client = socket;
+            }
+            Log.d(TAG, "Producer connected");
+            try {
+                readLoop(socket.getInputStream());
+            } catch (IOException e) {
+                Log.d(TAG, "Producer disconnected: " + e.getMessage());
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                synchronized (this) {
+                    if (client == socket) client = null;
+                }
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void readLoop(InputStream in) throws IOException, InterruptedException {
+        // The decoder keeps a character split across two reads until the rest of it arrives
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        CharBuffer chars = CharBuffer.allocate(READ_BUFFER_BYTES);
+        int read;
+        while ((read = in.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+            bytes.position(bytes.position() + read);
+            bytes.flip();
+            decoder.decode(bytes, chars, false);
+            bytes.compact();
+            chars.flip();
+            offer(chars);
+            chars.clear();
+        }
+    }
+
+    // Waits until the display has taken enough text to make room
+    private synchronized void offer(CharBuffer chars) throws InterruptedException {
+        while (pending.length() >= MAX_PENDING_CHARS) {
+            if (serverSocket == null) throw new InterruptedException("Stopped");
+            wait();
+        }
+        pending.append(chars);
+        receivedChars += chars.length();
+    }
+
+    private static void closeQuietly(LocalSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}